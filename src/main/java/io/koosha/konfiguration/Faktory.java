@@ -2,6 +2,9 @@ package io.koosha.konfiguration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.koosha.konfiguration.base.Deserializer;
+import io.koosha.konfiguration.base.Fingerprinter;
+import io.koosha.konfiguration.base.VersionedMap;
+import io.koosha.konfiguration.error.KfgIllegalArgumentException;
 import io.koosha.konfiguration.error.KfgIllegalStateException;
 import io.koosha.konfiguration.error.KfgSourceException;
 import io.koosha.konfiguration.type.Q;
@@ -10,8 +13,11 @@ import lombok.NonNull;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.yaml.snakeyaml.Yaml;
 
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -41,6 +47,10 @@ public interface Faktory {
 
     long LOCK_WAIT_MILLIS__DEFAULT = 300L;
 
+    boolean SNAPSHOT__DEFAULT = false;
+
+    boolean OPTIMISTIC_READ__DEFAULT = false;
+
     AtomicBoolean SAFE_YAML = new AtomicBoolean(false);
 
     @NotNull
@@ -160,6 +170,91 @@ public interface Faktory {
         return this.kombine(DEFAULT_KONFIG_NAME, sources);
     }
 
+    /**
+     * Updates the given konfiguration whenever the files backing its sources
+     * (such as {@link #jsonFile(String, Path)}) are touched, from a thread of
+     * its own, instead of polling {@link KonfigurationManager#hasUpdate()}.
+     * <p>
+     * Only the sources whose files were touched are asked for their update,
+     * and touches in quick succession (such as a single save by an editor)
+     * are handled in a single update. Sources not backed by files are left
+     * alone, they still have to be polled. Observers are run on the watcher's
+     * thread. {@link KonfigurationManager#update()} may still be called from
+     * elsewhere while watching, updates are run one at a time.
+     *
+     * @param manager manager of a konfiguration created by this factory.
+     *
+     * @return the watcher, to be closed when no longer needed.
+     *
+     * @throws NullPointerException        if manager is null.
+     * @throws KfgIllegalArgumentException if manager is not created by this
+     *                                     factory.
+     * @throws KfgSourceException          if the files can not be watched.
+     */
+    @NotNull
+    @Contract("_ -> new")
+    KonfigurationWatcher watch(@NotNull KonfigurationManager manager);
+
+    /**
+     * Same as {@link #refresh(KonfigurationManager, long, double, long, long)},
+     * with a jitter of 10%, a quiet period of a tenth of the interval, and
+     * backing off up to 32 times the interval.
+     *
+     * @param manager        manager of a konfiguration created by this
+     *                       factory.
+     * @param intervalMillis time between polls.
+     *
+     * @return the refresher, to be closed when no longer needed.
+     */
+    @NotNull
+    @Contract("_, _ -> new")
+    default KonfigurationWatcher refresh(@NotNull final KonfigurationManager manager,
+                                         final long intervalMillis) {
+        return this.refresh(manager, intervalMillis, 0.1, intervalMillis / 10, intervalMillis * 32);
+    }
+
+    /**
+     * Polls the given konfiguration for updates on a schedule, instead of
+     * each user writing a loop around {@link KonfigurationManager#update()}.
+     * <p>
+     * All refreshers share a single daemon thread for polling, and a second
+     * one for running observers, so a slow observer delays other observers
+     * but never polling. Once a poll sees an update, the konfiguration is
+     * updated only after the quiet period, so a burst of changes to the
+     * sources results in a single update and a single round of observer
+     * notifications. A failing poll or update is retried with exponential
+     * backoff, the failure handed to the thread's uncaught exception handler.
+     * <p>
+     * {@link KonfigurationManager#update()} may still be called from
+     * elsewhere while refreshing, updates are run one at a time. The
+     * konfiguration must be taken out of the manager with
+     * {@link KonfigurationManager#getAndSetToNull()} before the first poll.
+     *
+     * @param manager          manager of a konfiguration created by this
+     *                         factory.
+     * @param intervalMillis   time between polls.
+     * @param jitter           each interval is randomly spread by up to this
+     *                         fraction of it, in [0, 1).
+     * @param quietMillis      time to wait once an update is seen, before
+     *                         updating.
+     * @param maxBackoffMillis upper bound of time between polls after
+     *                         failures.
+     *
+     * @return the refresher, to be closed when no longer needed.
+     *
+     * @throws NullPointerException        if manager is null.
+     * @throws KfgIllegalArgumentException if manager is not created by this
+     *                                     factory, or any of the times are
+     *                                     out of range.
+     */
+    @NotNull
+    @Contract("_, _, _, _, _ -> new")
+    KonfigurationWatcher refresh(@NotNull KonfigurationManager manager,
+                                 long intervalMillis,
+                                 double jitter,
+                                 long quietMillis,
+                                 long maxBackoffMillis);
+
     // =========================================================================
 
     /**
@@ -183,6 +278,95 @@ public interface Faktory {
     KonfigurationManager map(@NotNull String name,
                              @NotNull Supplier<Map<String, ?>> storage);
 
+    /**
+     * Same as {@link #map(String, Supplier, Fingerprinter, boolean)}, with
+     * nested maps not enabled.
+     *
+     * @param name          name of the created source.
+     * @param storage       konfig source.
+     * @param fingerprinter tells if the map has changed.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if the provided storage by provider is null
+     */
+    @NotNull
+    @Contract(pure = true,
+            value = "_, _, _ -> new")
+    default KonfigurationManager map(@NotNull final String name,
+                                     @NotNull final Supplier<Map<String, ?>> storage,
+                                     @NotNull final Fingerprinter<? super Map<String, ?>> fingerprinter) {
+        return this.map(name, storage, fingerprinter, false);
+    }
+
+    /**
+     * Same as {@link #map(String, Supplier)}, telling if the map has changed
+     * with the given fingerprinter instead of the map's hash code.
+     *
+     * @param name          name of the created source.
+     * @param storage       konfig source.
+     * @param fingerprinter tells if the map has changed.
+     * @param nested        whether if values of nested maps are reachable by
+     *                      their dotted path, see
+     *                      {@link #mapWithNested(String, Supplier)}.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if the provided storage by provider is null
+     */
+    @NotNull
+    @Contract(pure = true,
+            value = "_, _, _, _ -> new")
+    KonfigurationManager map(@NotNull String name,
+                             @NotNull Supplier<Map<String, ?>> storage,
+                             @NotNull Fingerprinter<? super Map<String, ?>> fingerprinter,
+                             boolean nested);
+
+    /**
+     * Same as {@link #versionedMap(String, VersionedMap, boolean)}, with
+     * nested maps not enabled.
+     *
+     * @param name    name of the created source.
+     * @param storage konfig source.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if the provided storage by provider is null
+     */
+    @NotNull
+    @Contract(pure = true,
+            value = "_, _ -> new")
+    default KonfigurationManager versionedMap(@NotNull final String name,
+                                              @NotNull final VersionedMap storage) {
+        return this.versionedMap(name, storage, false);
+    }
+
+    /**
+     * Same as {@link #map(String, Supplier)}, backed by a map which keeps
+     * track of its own changes. Checking for update only compares the map's
+     * version, and an update only reads the keys changed off the map, if the
+     * map can tell them. See {@link VersionedMap} for the cost of an update.
+     *
+     * @param name    name of the created source.
+     * @param storage konfig source.
+     * @param nested  whether if values of nested maps are reachable by their
+     *                dotted path, see {@link #mapWithNested(String, Supplier)}.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if the provided storage by provider is null
+     */
+    @NotNull
+    @Contract(pure = true,
+            value = "_, _, _ -> new")
+    KonfigurationManager versionedMap(@NotNull String name,
+                                      @NotNull VersionedMap storage,
+                                      boolean nested);
+
     /**
      * Creates a {@link KonfigurationManager} with the given backing store.
      *
@@ -349,6 +533,10 @@ public interface Faktory {
 
     /**
      * Creates a {@link KonfigurationManager} with the given backing store.
+     * <p>
+     * Custom values are deserialized once, and the very same instance is
+     * handed to every read of the key until its stored value changes, so
+     * they must not be mutated.
      *
      * @param storage konfig source.
      * @param deser   deserializer for custom values.
@@ -371,6 +559,27 @@ public interface Faktory {
                                      @NotNull Preferences storage,
                                      @NotNull Deserializer deser);
 
+    /**
+     * Same as {@link #preferences(String, Preferences, Deserializer)}, but the
+     * whole tree is read into memory once and each lookup is served from
+     * there, instead of reading the backing store. A fresh snapshot is read
+     * on each update. Custom values are shared the same way.
+     *
+     * @param name    name of konfiguration source.
+     * @param storage konfig source.
+     * @param deser   deserializer for custom values, may be null.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if provided storage is null
+     * @throws KfgSourceException   if the preferences could not be read.
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    KonfigurationManager preferencesSnapshot(@NotNull String name,
+                                             @NotNull Preferences storage,
+                                             @Nullable Deserializer deser);
+
     // =========================================================================
 
     /**
@@ -379,7 +588,8 @@ public interface Faktory {
      * <p>
      * When reading a custom type, if you do not provide the actual requested
      * type (instance of {@link Q}) the source will act as if it does not
-     * contain that key.
+     * contain that key. Custom values are deserialized only once, the
+     * very same instance is handed to every read, and must not be mutated.
      *
      * @param name name of konfiguration source.
      * @param json backing store provider. Must always return a
@@ -404,7 +614,8 @@ public interface Faktory {
      * <p>
      * When reading a custom type, if you do not provide the actual requested
      * type (instance of {@link Q}) the source will act as if it does not
-     * contain that key.
+     * contain that key. Custom values are shared between reads as told in
+     * {@link #jacksonJson(String, Supplier)}.
      *
      * <b>Important: the source will NEVER update. It's a const source.</b>
      *
@@ -431,7 +642,8 @@ public interface Faktory {
      * <p>
      * When reading a custom type, if you do not provide the actual requested
      * type (instance of {@link Q}) the source will act as if it does not
-     * contain that key.
+     * contain that key. Custom values are shared between reads as told in
+     * {@link #jacksonJson(String, Supplier)}.
      *
      * <b>Important: the source will NEVER update. It's a const source.</b>
      *
@@ -463,7 +675,8 @@ public interface Faktory {
      * <p>
      * When reading a custom type, if you do not provide the actual requested
      * type (instance of {@link Q}) the source will act as if it does not
-     * contain that key.
+     * contain that key. Custom values are shared between reads as told in
+     * {@link #jacksonJson(String, Supplier)}.
      *
      * @param json backing store provider. Must always return a
      *             non-null valid json string.
@@ -488,7 +701,8 @@ public interface Faktory {
      * <p>
      * When reading a custom type, if you do not provide the actual requested
      * type (instance of {@link Q}) the source will act as if it does not
-     * contain that key.
+     * contain that key. Custom values are shared between reads as told in
+     * {@link #jacksonJson(String, Supplier)}.
      *
      * @param json         backing store provider. Must always return a
      *                     non-null valid json string.
@@ -518,7 +732,8 @@ public interface Faktory {
      * <p>
      * When reading a custom type, if you do not provide the actual requested
      * type (instance of {@link Q}) the source will act as if it does not
-     * contain that key.
+     * contain that key. Custom values are shared between reads as told in
+     * {@link #jacksonJson(String, Supplier)}.
      *
      * <b>Important: the source will NEVER update. It's a const source.</b>
      *
@@ -547,7 +762,8 @@ public interface Faktory {
      * <p>
      * When reading a custom type, if you do not provide the actual requested
      * type (instance of {@link Q}) the source will act as if it does not
-     * contain that key.
+     * contain that key. Custom values are shared between reads as told in
+     * {@link #jacksonJson(String, Supplier)}.
      *
      * <b>Important: the source will NEVER update. It's a const source.</b>
      *
@@ -581,7 +797,8 @@ public interface Faktory {
      * <p>
      * When reading a custom type, if you do not provide the actual requested
      * type (instance of {@link Q}) the source will act as if it does not
-     * contain that key.
+     * contain that key. Custom values are shared between reads as told in
+     * {@link #jacksonJson(String, Supplier)}.
      *
      * @param name         name of konfiguration source.
      * @param json         backing store provider. Must always return a
@@ -606,6 +823,132 @@ public interface Faktory {
                                      @NotNull Supplier<String> json,
                                      @NotNull Supplier<ObjectMapper> objectMapper);
 
+    /**
+     * Same as {@link #jacksonJson(String, Supplier, Supplier)}, telling if the
+     * json has changed with the given fingerprinter instead of the default
+     * {@link Fingerprinter#digest()}.
+     *
+     * @param name          name of konfiguration source.
+     * @param json          backing store provider. Must always return a
+     *                      non-null valid json string.
+     * @param objectMapper  A {@link ObjectMapper} provider.
+     * @param fingerprinter tells if the json has changed, such as
+     *                      {@link Fingerprinter#version(Supplier)} to only
+     *                      compare version tokens on each poll.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if jackson library is not in the classpath. it specifically looks
+     *                              for the class: "com.fasterxml.jackson.databind.JsonNode"
+     * @throws KfgSourceException   if the storage (json string) returned by json string is null.
+     * @throws KfgSourceException   if the provided json string can not be parsed by jackson.
+     */
+    @NotNull
+    @Contract("_, _, _, _ -> new")
+    KonfigurationManager jacksonJson(@NotNull String name,
+                                     @NotNull Supplier<String> json,
+                                     @NotNull Supplier<ObjectMapper> objectMapper,
+                                     @NotNull Fingerprinter<? super String> fingerprinter);
+
+    /**
+     * Creates a {@link KonfigurationManager} reading json off the streams of
+     * the given provider, and a default object mapper provider.
+     * <p>
+     * The json is streamed into the source, the whole document is never held
+     * in memory, neither as a string nor as a tree. Each stream is closed by
+     * the source once read.
+     *
+     * @param name name of konfiguration source.
+     * @param json backing store provider. Must always return a non-null
+     *             stream of a valid json.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if jackson library is not in the classpath. it specifically looks
+     *                              for the class: "com.fasterxml.jackson.databind.JsonNode"
+     * @throws KfgSourceException   if the provided json can not be parsed by jackson.
+     */
+    @NotNull
+    @Contract("_, _ -> new")
+    KonfigurationManager jacksonJsonStream(@NotNull String name,
+                                           @NotNull Supplier<? extends InputStream> json);
+
+    /**
+     * Same as {@link #jacksonJsonStream(String, Supplier)}, with the given
+     * object mapper provider.
+     *
+     * @param name         name of konfiguration source.
+     * @param json         backing store provider. Must always return a
+     *                     non-null stream of a valid json.
+     * @param objectMapper A {@link ObjectMapper} provider. Must always return
+     *                     a valid non-null ObjectMapper, and if required, it
+     *                     must be able to deserialize custom types, so that
+     *                     {@link Konfiguration#custom(Q)} works as well.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if jackson library is not in the classpath. it specifically looks
+     *                              for the class: "com.fasterxml.jackson.databind.JsonNode"
+     * @throws KfgSourceException   if the provided json can not be parsed by jackson.
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    KonfigurationManager jacksonJsonStream(@NotNull String name,
+                                           @NotNull Supplier<? extends InputStream> json,
+                                           @NotNull Supplier<ObjectMapper> objectMapper);
+
+    /**
+     * Creates a {@link KonfigurationManager} reading json off the given file,
+     * and a default object mapper provider.
+     * <p>
+     * The file is read whole into a heap buffer and parsed straight off
+     * its bytes. On update, it is read again only if its modification time,
+     * size or identity (inode, where supported) has changed.
+     *
+     * @param name name of konfiguration source.
+     * @param file the json file.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if jackson library is not in the classpath. it specifically looks
+     *                              for the class: "com.fasterxml.jackson.databind.JsonNode"
+     * @throws KfgSourceException   if the file can not be read.
+     * @throws KfgSourceException   if the provided json can not be parsed by jackson.
+     */
+    @NotNull
+    @Contract("_, _ -> new")
+    KonfigurationManager jsonFile(@NotNull String name,
+                                  @NotNull Path file);
+
+    /**
+     * Same as {@link #jsonFile(String, Path)}, with the given object mapper
+     * provider.
+     *
+     * @param name         name of konfiguration source.
+     * @param file         the json file.
+     * @param objectMapper A {@link ObjectMapper} provider. Must always return
+     *                     a valid non-null ObjectMapper, and if required, it
+     *                     must be able to deserialize custom types, so that
+     *                     {@link Konfiguration#custom(Q)} works as well.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if jackson library is not in the classpath. it specifically looks
+     *                              for the class: "com.fasterxml.jackson.databind.JsonNode"
+     * @throws KfgSourceException   if the file can not be read.
+     * @throws KfgSourceException   if the provided json can not be parsed by jackson.
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    KonfigurationManager jsonFile(@NotNull String name,
+                                  @NotNull Path file,
+                                  @NotNull Supplier<ObjectMapper> objectMapper);
+
     // =========================================================================
 
     /**
@@ -850,6 +1193,29 @@ public interface Faktory {
                                    @NotNull Supplier<String> yaml,
                                    @NotNull Supplier<Yaml> objectMapper);
 
+    /**
+     * Same as {@link #snakeYaml(String, Supplier, Supplier)}, telling if the
+     * yaml has changed with the given fingerprinter instead of the default
+     * {@link Fingerprinter#digest()}.
+     *
+     * @param name          name of konfiguration source.
+     * @param yaml          backing store provider. Must always return a
+     *                      non-null valid yaml string.
+     * @param objectMapper  A {@link Yaml} provider.
+     * @param fingerprinter tells if the yaml has changed.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if snake yaml library is not in the classpath.
+     */
+    @NotNull
+    @Contract("_, _, _, _ -> new")
+    KonfigurationManager snakeYaml(@NotNull String name,
+                                   @NotNull Supplier<String> yaml,
+                                   @NotNull Supplier<Yaml> objectMapper,
+                                   @NotNull Fingerprinter<? super String> fingerprinter);
+
     /**
      * Same as {@link #snakeYaml(String, String, Supplier)} but explicitly rejects
      * parameterized types.
@@ -866,4 +1232,89 @@ public interface Faktory {
                                         @NotNull Supplier<String> yaml,
                                         @NotNull Supplier<Yaml> objectMapper);
 
+    /**
+     * Same as {@link #snakeYamlLazy(String, Supplier, Supplier)}, with the
+     * default yaml provider, which constructs each value straight out of its
+     * node. Other providers construct a value by emitting its node back as
+     * yaml and loading it.
+     *
+     * @param name name of konfiguration source.
+     * @param yaml backing store provider. Must always return a non-null
+     *             valid yaml string.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if snake yaml library is not in the classpath.
+     */
+    @NotNull
+    @Contract("_, _ -> new")
+    KonfigurationManager snakeYamlLazy(@NotNull String name,
+                                       @NotNull Supplier<String> yaml);
+
+    /**
+     * Same as {@link #snakeYaml(String, Supplier, Supplier)}, but the yaml is
+     * only composed into snake yaml's node graph and indexed. Each value is
+     * constructed out of its node the first time it is asked for, and kept.
+     * <p>
+     * Cuts load and update time of large documents of which only a few keys
+     * are read, custom types are constructed only when read.
+     *
+     * @param name         name of konfiguration source.
+     * @param yaml         backing store provider. Must always return a
+     *                     non-null valid yaml string.
+     * @param objectMapper A {@link Yaml} provider.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if snake yaml library is not in the classpath.
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    KonfigurationManager snakeYamlLazy(@NotNull String name,
+                                       @NotNull Supplier<String> yaml,
+                                       @NotNull Supplier<Yaml> objectMapper);
+
+    /**
+     * Creates a {@link KonfigurationManager} reading yaml off the given file,
+     * with default yaml provider.
+     * <p>
+     * The file is read whole into a heap buffer and decoded by snake
+     * yaml as it is read. On update, it is read again only if its modification
+     * time, size or identity (inode, where supported) has changed.
+     *
+     * @param name name of konfiguration source.
+     * @param file the yaml file.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if snake yaml library is not in the classpath.
+     * @throws KfgSourceException   if the file can not be read.
+     */
+    @NotNull
+    @Contract("_, _ -> new")
+    KonfigurationManager yamlFile(@NotNull String name,
+                                  @NotNull Path file);
+
+    /**
+     * Same as {@link #yamlFile(String, Path)}, with the given yaml provider.
+     *
+     * @param name         name of konfiguration source.
+     * @param file         the yaml file.
+     * @param objectMapper A {@link Yaml} provider.
+     *
+     * @return a konfig source.
+     *
+     * @throws NullPointerException if any of its arguments are null.
+     * @throws KfgSourceException   if snake yaml library is not in the classpath.
+     * @throws KfgSourceException   if the file can not be read.
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    KonfigurationManager yamlFile(@NotNull String name,
+                                  @NotNull Path file,
+                                  @NotNull Supplier<Yaml> objectMapper);
+
 }
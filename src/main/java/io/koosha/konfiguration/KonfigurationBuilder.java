@@ -74,6 +74,35 @@ public interface KonfigurationBuilder {
     @NotNull
     KonfigurationBuilder mixedTypes(boolean allow);
 
+    /**
+     * In snapshot mode, readers never lock. Sources and the values resolved
+     * from them are published as a single immutable generation, and updates
+     * swap in the next generation atomically.
+     *
+     * @param snapshot whether if readers should read from the snapshot without
+     *                 locking.
+     * @return this builder.
+     */
+    @NotNull
+    KonfigurationBuilder snapshot(boolean snapshot);
+
+    /**
+     * Readers first read without locking and validate the read afterward,
+     * and only if an update was swapped in meanwhile, read again holding the
+     * read lock. Uncontended reads then write no shared memory at all.
+     * {@link KonfigurationManager#hasUpdate()} still takes the read lock, as
+     * sources may fetch their payload to answer it.
+     * <p>
+     * Writers are still ordered by {@link #fairLock(boolean)} and bounded by
+     * {@link #lockWaitTime(long)}. Has no effect in snapshot mode, where
+     * readers do not lock at all.
+     *
+     * @param optimistic whether if readers should read optimistically.
+     * @return this builder.
+     */
+    @NotNull
+    KonfigurationBuilder optimisticRead(boolean optimistic);
+
     @NotNull
     KonfigurationManager build();
 
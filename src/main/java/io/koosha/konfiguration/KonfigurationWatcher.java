@@ -0,0 +1,22 @@
+package io.koosha.konfiguration;
+
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Keeps a konfiguration up to date in the background, until closed.
+ *
+ * @see Faktory#watch(KonfigurationManager)
+ * @see Faktory#refresh(KonfigurationManager, long, double, long, long)
+ */
+@ThreadSafe
+@ApiStatus.AvailableSince(Faktory.VERSION_8)
+public interface KonfigurationWatcher extends AutoCloseable {
+
+    /**
+     * Stops watching, idempotent. Updates already started are let finish.
+     */
+    @Override
+    void close();
+
+}
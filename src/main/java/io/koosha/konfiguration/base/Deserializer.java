@@ -4,6 +4,8 @@ import io.koosha.konfiguration.type.Q;
 import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
+
 @ThreadSafe
 @FunctionalInterface
 public interface Deserializer {
@@ -19,4 +21,24 @@ public interface Deserializer {
      */
     <T> T apply(@NotNull byte[] bytes, @NotNull Q<@NotNull T> q);
 
+    /**
+     * Deserialize the remaining bytes of a buffer to requested type.
+     * <p>
+     * Sources holding the bytes already call this one, so deserializers able
+     * to read off a buffer (or a stream over it) should override it to avoid
+     * a copy of possibly large values. By default copies the bytes and
+     * delegates to {@link #apply(byte[], Q)}.
+     *
+     * @param buffer source bytes, read only, must not be kept.
+     * @param q      requested type.
+     * @param <T>    generic type of requested type.
+     * @return deserialized type out of {@code buffer}.
+     * @throws UnsupportedOperationException if the bytes are not of type q.
+     */
+    default <T> T apply(@NotNull final ByteBuffer buffer, @NotNull final Q<@NotNull T> q) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return this.apply(bytes, q);
+    }
+
 }
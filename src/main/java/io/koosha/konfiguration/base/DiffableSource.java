@@ -0,0 +1,40 @@
+package io.koosha.konfiguration.base;
+
+import io.koosha.konfiguration.Faktory;
+import io.koosha.konfiguration.Source;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * A source that can tell which of its keys changed since a previous version
+ * of itself.
+ * <p>
+ * On update, the kombiner only re-resolves the keys reported changed by the
+ * updated sources, instead of every key ever asked for. Sources not
+ * implementing this cause every key to be re-resolved on their update.
+ */
+@ApiStatus.AvailableSince(Faktory.VERSION_8)
+public interface DiffableSource extends EnumerableSource {
+
+    /**
+     * Keys added, removed or modified since the given source.
+     * <p>
+     * A key stands for itself and everything nested under it, so a changed
+     * "a.b" also changes "a" and "a.b.c". Reporting a key which has not
+     * actually changed is fine, it is only re-resolved.
+     *
+     * @param previous the source this one is an update of.
+     *
+     * @return changed keys in dotted form, or null if can not tell (such as
+     *         when previous is another kind of source), in which case all the
+     *         keys are taken as changed.
+     */
+    @Nullable
+    @Contract(pure = true)
+    Set<String> diff(@NotNull Source previous);
+
+}
@@ -0,0 +1,85 @@
+package io.koosha.konfiguration.base;
+
+import io.koosha.konfiguration.error.KfgAssertionException;
+import lombok.NonNull;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fingerprint of {@link Fingerprinter#digest()}.
+ *
+ * <p>The digest is taken lazily, only once compared with a fingerprint of a
+ * payload of the same length and not the very same string. Until then the
+ * payload is held on to.
+ */
+@ThreadSafe
+@ApiStatus.Internal
+final class DigestFingerprint {
+
+    private final int length;
+
+    /**
+     * Dropped once digested.
+     */
+    @Nullable
+    private String payload;
+
+    @Nullable
+    private byte[] digest;
+
+    DigestFingerprint(@NotNull @NonNull final String payload) {
+        this.length = payload.length();
+        this.payload = payload;
+    }
+
+    @Nullable
+    private synchronized String payload() {
+        return this.payload;
+    }
+
+    @NotNull
+    private synchronized byte[] digest() {
+        if (this.digest == null) {
+            final MessageDigest md;
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            }
+            catch (final NoSuchAlgorithmException e) {
+                throw new KfgAssertionException("SHA-256 not available: " + e.getMessage());
+            }
+            this.digest = md.digest(requireNonNull(this.payload).getBytes(StandardCharsets.UTF_8));
+            this.payload = null;
+        }
+        return this.digest;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof DigestFingerprint))
+            return false;
+        final DigestFingerprint other = (DigestFingerprint) o;
+        if (this.length != other.length)
+            return false;
+        final String payload = this.payload();
+        if (payload != null && payload == other.payload())
+            return true;
+        return Arrays.equals(this.digest(), other.digest());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.length;
+    }
+
+}
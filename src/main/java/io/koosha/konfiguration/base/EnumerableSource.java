@@ -0,0 +1,34 @@
+package io.koosha.konfiguration.base;
+
+import io.koosha.konfiguration.Faktory;
+import io.koosha.konfiguration.Source;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * A source that can list the keys it holds.
+ * <p>
+ * Lets the kombiner find the source owning a key with a single lookup instead
+ * of asking each source in turn. Sources not implementing this are still
+ * asked, in their usual order.
+ */
+@ApiStatus.AvailableSince(Faktory.VERSION_8)
+public interface EnumerableSource extends Source {
+
+    /**
+     * All the keys this source might have a value for.
+     * <p>
+     * Must be a superset of the keys for which {@link #has} returns true, for
+     * any type. Listing a key the source does not actually have is fine, it
+     * is only a hint to ask this source about the key.
+     *
+     * @return keys of this source, in dotted form for nested keys.
+     */
+    @NotNull
+    @Contract(pure = true)
+    Set<String> keys();
+
+}
@@ -0,0 +1,153 @@
+package io.koosha.konfiguration.base;
+
+import io.koosha.konfiguration.Faktory;
+import lombok.NonNull;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Supplier;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Tells whether the payload of a source has changed since it was last read.
+ * <p>
+ * A source keeps the fingerprint of the payload it was built from and
+ * compares it with a fresh one on each poll. Fingerprints are compared with
+ * {@link Object#equals(Object)}.
+ * <p>
+ * Strategies able to tell the fingerprint without the payload (a version
+ * token, a file's attributes) implement {@link #peek()}, so that polling a
+ * source which has not changed never fetches its payload.
+ *
+ * @param <T> type of payload.
+ */
+@ThreadSafe
+@ApiStatus.AvailableSince(Faktory.VERSION_8)
+public interface Fingerprinter<T> {
+
+    /**
+     * Fingerprint of the payload the source would get if it was fetched now,
+     * without fetching it.
+     *
+     * @return fingerprint of current payload, or null if this strategy needs
+     *         the payload itself, see {@link #of(Object)}.
+     */
+    @Nullable
+    default Object peek() {
+        return null;
+    }
+
+    /**
+     * Fingerprint of the given payload, only called when {@link #peek()}
+     * returns null.
+     *
+     * @param payload the fetched payload.
+     * @return fingerprint of the payload.
+     */
+    @NotNull
+    Object of(@NotNull T payload);
+
+    // =========================================================================
+
+    /**
+     * Length of the string, and its SHA-256 digest. Collisions are not a
+     * practical concern.
+     * <p>
+     * Payloads of different lengths are told apart without digesting them,
+     * and so is the very same string returned again, otherwise each poll
+     * digests the whole payload.
+     *
+     * @return a fingerprinter by digest.
+     */
+    @NotNull
+    @Contract(pure = true)
+    static Fingerprinter<String> digest() {
+        return DigestFingerprint::new;
+    }
+
+    /**
+     * Version token of the payload as told by the given supplier, such as an
+     * ETag or a revision number. Polls only compare tokens.
+     * <p>
+     * A null token is a token like any other, equal to itself only.
+     *
+     * @param version token supplier, the token must change whenever the
+     *                payload does.
+     * @return a fingerprinter by version token.
+     */
+    @NotNull
+    @Contract(pure = true)
+    static Fingerprinter<Object> version(@NotNull @NonNull final Supplier<?> version) {
+        // Stands in for null, peek() may not return it.
+        final Object none = new Object();
+        return new Fingerprinter<Object>() {
+            @Override
+            public Object peek() {
+                return this.of(none);
+            }
+
+            @NotNull
+            @Override
+            public Object of(@NotNull final Object payload) {
+                final Object v = version.get();
+                return v == null ? none : v;
+            }
+        };
+    }
+
+    /**
+     * Last modification time, size and identity (inode, where supported) of
+     * the file the payload is read from. Polls only read the file's
+     * attributes.
+     * <p>
+     * If the attributes can not be read, the payload is taken as changed.
+     *
+     * @param file the file backing the payload.
+     * @return a fingerprinter by file attributes.
+     */
+    @NotNull
+    @Contract(pure = true)
+    static Fingerprinter<Object> file(@NotNull @NonNull final Path file) {
+        return new Fingerprinter<Object>() {
+            @Override
+            public Object peek() {
+                try {
+                    final BasicFileAttributes attr = Files.readAttributes(file, BasicFileAttributes.class);
+                    return asList(attr.lastModifiedTime(), attr.size(), attr.fileKey());
+                }
+                catch (final IOException e) {
+                    return null;
+                }
+            }
+
+            @NotNull
+            @Override
+            public Object of(@NotNull final Object payload) {
+                // Unknown, never equal to anything.
+                return new Object();
+            }
+        };
+    }
+
+    /**
+     * {@link Object#hashCode()} of the payload, the behaviour prior to
+     * fingerprinters. Cheap for strings already hashed, but collisions
+     * silently drop an update.
+     *
+     * @return a fingerprinter by hash code.
+     */
+    @NotNull
+    @Contract(pure = true)
+    static Fingerprinter<Object> hashed() {
+        return Object::hashCode;
+    }
+
+}
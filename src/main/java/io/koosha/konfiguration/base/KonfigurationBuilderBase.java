@@ -70,7 +70,21 @@ public abstract class KonfigurationBuilderBase implements KonfigurationBuilder {
      */
     private Long lockWaitTime = Faktory.LOCK_WAIT_MILLIS__DEFAULT;
 
-    @Contract(value = "_, _, _, _, _ -> new",
+    /**
+     * See {@link KonfigurationBuilder#snapshot(boolean)}.
+     *
+     * @see KonfigurationBuilder#snapshot(boolean)
+     */
+    private boolean snapshot = Faktory.SNAPSHOT__DEFAULT;
+
+    /**
+     * See {@link KonfigurationBuilder#optimisticRead(boolean)}.
+     *
+     * @see KonfigurationBuilder#optimisticRead(boolean)
+     */
+    private boolean optimisticRead = Faktory.OPTIMISTIC_READ__DEFAULT;
+
+    @Contract(value = "_, _, _, _, _, _, _ -> new",
             pure = true)
     @ApiStatus.OverrideOnly
     protected abstract KonfigurationManager build0(
@@ -78,6 +92,8 @@ public abstract class KonfigurationBuilderBase implements KonfigurationBuilder {
             boolean fairLock,
             boolean mixedTypes,
             @Nullable Long lockWaitTime,
+            boolean snapshot,
+            boolean optimisticRead,
             @NotNull Collection<KonfigurationManager> sources);
 
     @Contract(mutates = "this")
@@ -110,6 +126,26 @@ public abstract class KonfigurationBuilderBase implements KonfigurationBuilder {
     }
 
 
+    @Contract(mutates = "this")
+    @NotNull
+    @Synchronized
+    @Override
+    public final KonfigurationBuilder snapshot(final boolean snapshot) {
+        this.ensure();
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    @Contract(mutates = "this")
+    @NotNull
+    @Synchronized
+    @Override
+    public final KonfigurationBuilder optimisticRead(final boolean optimistic) {
+        this.ensure();
+        this.optimisticRead = optimistic;
+        return this;
+    }
+
     @Contract(mutates = "this")
     @NotNull
     @Synchronized
@@ -144,6 +180,8 @@ public abstract class KonfigurationBuilderBase implements KonfigurationBuilder {
                 this.fairLock,
                 this.mixedTypes,
                 this.lockWaitTime,
+                this.snapshot,
+                this.optimisticRead,
                 this.sources);
     }
 
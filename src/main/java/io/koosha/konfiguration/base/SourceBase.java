@@ -36,55 +36,28 @@ public abstract class SourceBase implements Source {
         if (!(o instanceof Number))
             return null;
 
-        final Long l = toLong((Number) o);
-        if (l == null)
+        final Number n = (Number) o;
+        if (!isIntegral(n, Long.MIN_VALUE, Long.MAX_VALUE))
             return null;
 
         //noinspection RedundantConditionalExpression
-        return l == 0 ? false : true;
-    }
-
-    @Contract(pure = true,
-            value = "null -> null")
-    @Nullable
-    private static Long toByte(@Nullable final Number o) {
-        return toIntegral(o, Byte.MIN_VALUE, Byte.MAX_VALUE);
-    }
-
-    @Contract(pure = true,
-            value = "null -> null")
-    @Nullable
-    private static Long toShort(@Nullable final Number o) {
-        return toIntegral(o, Short.MIN_VALUE, Short.MAX_VALUE);
-    }
-
-    @Contract(pure = true,
-            value = "null -> null")
-    @Nullable
-    private static Long toInt(@Nullable final Number o) {
-        return toIntegral(o, Integer.MIN_VALUE, Integer.MAX_VALUE);
-    }
-
-    @Contract(pure = true,
-            value = "null -> null")
-    @Nullable
-    private static Long toLong(@Nullable final Number o) {
-        return toIntegral(o, Long.MIN_VALUE, Long.MAX_VALUE);
+        return n.longValue() == 0 ? false : true;
     }
 
+    /**
+     * Checks the number fits in [min, max] without going through a boxed
+     * intermediate, so callers can take the primitive value right off it.
+     */
     @Contract(pure = true,
-            value = "null, _, _ -> null")
-    @Nullable
-    private static Long toIntegral(@Nullable final Number o,
-                                   final long min,
-                                   final long max) {
+            value = "null, _, _ -> false")
+    private static boolean isIntegral(@Nullable final Number o,
+                                      final long min,
+                                      final long max) {
         if (o == null || o instanceof Double || o instanceof Float)
-            return null;
-
-        if (o.longValue() < min || max < o.longValue())
-            return null;
+            return false;
 
-        return o.longValue();
+        final long l = o.longValue();
+        return min <= l && l <= max;
     }
 
     @Contract(pure = true,
@@ -101,16 +74,6 @@ public abstract class SourceBase implements Source {
         return o.floatValue();
     }
 
-    @Contract(pure = true,
-            value = "null -> null")
-    @Nullable
-    private static Double toDouble(@Nullable final Number o) {
-        if (o == null)
-            return null;
-
-        return o.doubleValue();
-    }
-
     @NotNull
     @ApiStatus.OverrideOnly
     protected abstract Object bool0(@NotNull final String key);
@@ -459,11 +422,10 @@ public abstract class SourceBase implements Source {
 
         final Number v = this.number0(key);
 
-        final Long vv = toByte(v);
-        if (vv == null)
+        if (!isIntegral(v, Byte.MIN_VALUE, Byte.MAX_VALUE))
             throw new KfgMissingKeyException(this.name(), type);
 
-        return this.k(type, vv.byteValue());
+        return this.k(type, v.byteValue());
     }
 
     /**
@@ -482,11 +444,10 @@ public abstract class SourceBase implements Source {
 
         final Number v = this.number0(key);
 
-        final Long vv = toShort(v);
-        if (vv == null)
+        if (!isIntegral(v, Short.MIN_VALUE, Short.MAX_VALUE))
             throw new KfgMissingKeyException(this.name(), type);
 
-        return this.k(type, vv.shortValue());
+        return this.k(type, v.shortValue());
     }
 
     // =========================================================================
@@ -507,11 +468,10 @@ public abstract class SourceBase implements Source {
 
         final Number v = this.number0(key);
 
-        final Long vv = toInt(v);
-        if (vv == null)
+        if (!isIntegral(v, Integer.MIN_VALUE, Integer.MAX_VALUE))
             throw new KfgMissingKeyException(this.name(), type);
 
-        return this.k(type, vv.intValue());
+        return this.k(type, v.intValue());
     }
 
     /**
@@ -530,11 +490,10 @@ public abstract class SourceBase implements Source {
 
         final Number v = this.number0(key);
 
-        final Long vv = toLong(v);
-        if (vv == null)
+        if (!isIntegral(v, Long.MIN_VALUE, Long.MAX_VALUE))
             throw new KfgMissingKeyException(this.name(), type);
 
-        return this.k(type, vv);
+        return this.k(type, v.longValue());
     }
 
     /**
@@ -576,11 +535,10 @@ public abstract class SourceBase implements Source {
 
         final Number v = this.numberDouble0(key);
 
-        final Double vv = toDouble(v);
-        if (vv == null)
+        if (v == null)
             throw new KfgMissingKeyException(this.name(), type);
 
-        return this.k(type, vv);
+        return this.k(type, v.doubleValue());
     }
 
     /**
@@ -0,0 +1,65 @@
+package io.koosha.konfiguration.base;
+
+import io.koosha.konfiguration.Faktory;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map backing a konfiguration source which keeps track of its own changes,
+ * such as an in-process store.
+ * <p>
+ * Polling such a map compares only its version, and an update reads off the
+ * map only the keys changed since the version last read, if the map can tell
+ * them, and tells the kombiner only those keys changed.
+ * <p>
+ * The source still keeps a copy of its own, so that it stays immutable while
+ * the map changes: each update copies the previous copy (shallow, O(n) in the
+ * number of keys, values are not copied), and if nested maps are enabled,
+ * indexes all the nested values anew. What is saved is walking the map's
+ * values to hash or compare them, and re-resolving unchanged keys.
+ */
+@ThreadSafe
+@ApiStatus.AvailableSince(Faktory.VERSION_8)
+public interface VersionedMap {
+
+    /**
+     * Version of the map, must move forward whenever the map changes.
+     *
+     * @return current version of the map.
+     */
+    @Contract(pure = true)
+    long version();
+
+    /**
+     * Current contents of the map.
+     *
+     * @return current contents of the map, not copied by the caller if only
+     *         the changed keys are read.
+     */
+    @NotNull
+    @Contract(pure = true)
+    Map<String, ?> map();
+
+    /**
+     * Keys added, removed or changed after the given version.
+     * <p>
+     * May tell more keys than actually changed, but never less. Keys changed
+     * after the current {@link #version()} may be included too.
+     *
+     * @param version a version previously returned by {@link #version()}.
+     * @return changed keys, or null if not known, in which case the whole
+     *         map is read.
+     */
+    @Nullable
+    @Contract(pure = true)
+    default Set<String> changedSince(final long version) {
+        return null;
+    }
+
+}
@@ -0,0 +1,30 @@
+package io.koosha.konfiguration.base;
+
+import io.koosha.konfiguration.Faktory;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * An updatable source backed by files on the local file system.
+ * <p>
+ * Lets a watcher update the source only when one of its files is touched,
+ * instead of polling {@link #hasUpdate()}.
+ */
+@ApiStatus.AvailableSince(Faktory.VERSION_8)
+public interface WatchableSource extends UpdatableSource {
+
+    /**
+     * Files the payload of this source is read from.
+     *
+     * @return files backing this source, empty if it is not backed by files
+     *         and must be polled.
+     */
+    @NotNull
+    @Contract(pure = true)
+    Collection<Path> files();
+
+}
@@ -37,6 +37,11 @@ public class Q<TYPE> {
 
     final boolean isRoot;
 
+    /**
+     * Computed once, Q is used as a map key on every lookup.
+     */
+    private final int hash;
+
     protected Q(@NotNull @NonNull final String key) {
         this(key, 0);
     }
@@ -50,6 +55,7 @@ public class Q<TYPE> {
         this.args = copy(args);
         this.args.forEach(Objects::requireNonNull);
         ensureIsConcrete(this);
+        this.hash = this.hash0();
     }
 
     private Q(@NotNull @NonNull final String key,
@@ -71,6 +77,7 @@ public class Q<TYPE> {
 
         if (this.isRoot)
             ensureIsConcrete(this);
+        this.hash = this.hash0();
     }
 
     private Q(@NotNull @NonNull final String key,
@@ -93,6 +100,7 @@ public class Q<TYPE> {
 
         if (nestingLevel == 0)
             ensureIsConcrete(this);
+        this.hash = this.hash0();
     }
 
     @NotNull
@@ -109,11 +117,15 @@ public class Q<TYPE> {
         return new Q<>(key, type, 0);
     }
 
+    /**
+     * Simple types (boxed primitives, string and the raw collections) are
+     * interned, asking for the same key and type returns the same instance.
+     */
     @NotNull
-    @Contract("_, _ -> new")
+    @Contract(pure = true)
     public static <T> Q<T> of(@NotNull @NonNull final String key,
                               @NotNull @NonNull final Class<T> klass) {
-        return new Q<>(key, klass, 0);
+        return Q_Interned.intern(key, klass, k -> new Q<>(k, klass, 0));
     }
 
     @NotNull
@@ -140,95 +152,82 @@ public class Q<TYPE> {
     // =========================================================================
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Boolean> bool(@NotNull @NonNull final String key) {
         return of(key, Boolean.class);
     }
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Character> char_(@NotNull @NonNull final String key) {
         return of(key, Character.class);
     }
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Byte> byte_(@NotNull @NonNull final String key) {
         return of(key, Byte.class);
     }
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Short> short_(@NotNull @NonNull final String key) {
         return of(key, Short.class);
     }
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Integer> int_(@NotNull @NonNull final String key) {
         return of(key, Integer.class);
     }
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Long> long_(@NotNull @NonNull final String key) {
         return of(key, Long.class);
     }
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Float> float_(@NotNull @NonNull final String key) {
         return of(key, Float.class);
     }
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Double> double_(@NotNull @NonNull final String key) {
         return of(key, Double.class);
     }
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<String> string(@NotNull @NonNull final String key) {
         return of(key, String.class);
     }
 
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<?> unknown(@NotNull @NonNull final String key) {
         return of(key, Object.class);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Map<?, ?>> unknownMap(@NotNull @NonNull final String key) {
         return (Q) of(key, Map.class);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Set<?>> unknownSet(@NotNull @NonNull final String key) {
         return (Q) of(key, Set.class);
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     @NotNull
-    @Contract(value = "_ -> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<List<?>> unknownList(@NotNull @NonNull final String key) {
         return (Q) of(key, List.class);
     }
@@ -236,92 +235,79 @@ public class Q<TYPE> {
     // =========================================================================
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Boolean> bool() {
         return bool(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Character> char_() {
         return char_(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Byte> byte_() {
         return byte_(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Short> short_() {
         return short_(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Integer> int_() {
         return int_(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Long> long_() {
         return long_(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Float> float_() {
         return float_(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Double> double_() {
         return double_(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<String> string() {
         return string(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<?> unknown() {
         return unknown(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Map<?, ?>> unknownMap() {
         return unknownMap(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<Set<?>> unknownSet() {
         return unknownSet(X);
     }
 
     @NotNull
-    @Contract(value = "-> new",
-            pure = true)
+    @Contract(pure = true)
     public static Q<List<?>> unknownList() {
         return unknownList(X);
     }
@@ -537,13 +523,18 @@ public class Q<TYPE> {
         if (!(obj instanceof Q))
             return false;
         final Q<?> other = (Q<?>) obj;
-        return Objects.equals(this.key(), other.key())
-                && Objects.equals(this.klass(), other.klass())
+        return this.hash == other.hash
+                && Objects.equals(this.key, other.key)
+                && Objects.equals(this.klass, other.klass)
                 && Objects.equals(this.args, other.args);
     }
 
     @Override
     public final int hashCode() {
+        return this.hash;
+    }
+
+    private int hash0() {
         return this.args.hashCode() + 31 * (
                 this.klass.hashCode() + 31 * (
                         31 + this.key.hashCode()));
@@ -0,0 +1,78 @@
+package io.koosha.konfiguration.type;
+
+import lombok.NonNull;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Canonical instances of the simple, unparameterized {@link Q} types, keyed by
+ * (key, type), so the hot path of asking for the same key over and over does
+ * not allocate and compares by identity.
+ *
+ * <p>Each pool is bounded, once full new keys are simply not interned anymore,
+ * so random keys can not grow it without limit.
+ */
+@ThreadSafe
+final class Q_Interned {
+
+    static final int MAX_POOL_SIZE = 4096;
+
+    private static final Map<Class<?>, Map<String, Q<?>>> POOLS;
+
+    static {
+        final Map<Class<?>, Map<String, Q<?>>> pools = new HashMap<>();
+        for (final Class<?> klass : new Class<?>[]{
+                Boolean.class,
+                Character.class,
+                Byte.class,
+                Short.class,
+                Integer.class,
+                Long.class,
+                Float.class,
+                Double.class,
+                String.class,
+                Object.class,
+                Map.class,
+                Set.class,
+                List.class,
+        })
+            pools.put(klass, new ConcurrentHashMap<>());
+        POOLS = Collections.unmodifiableMap(pools);
+    }
+
+    private Q_Interned() {
+        // Utility class.
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    @Contract(pure = true)
+    static <T> Q<T> intern(@NotNull @NonNull final String key,
+                           @NotNull @NonNull final Class<T> klass,
+                           @NotNull @NonNull final Function<String, Q<T>> factory) {
+        final Map<String, Q<?>> pool = POOLS.get(Q_Helper.upper(klass));
+        if (pool == null)
+            return factory.apply(key);
+
+        final Q<?> existing = pool.get(key);
+        if (existing != null)
+            return (Q<T>) existing;
+
+        final Q<T> q = factory.apply(key);
+        if (pool.size() >= MAX_POOL_SIZE)
+            return q;
+
+        final Q<?> raced = pool.putIfAbsent(key, q);
+        return raced == null ? q : (Q<T>) raced;
+    }
+
+}
@@ -88,11 +88,15 @@ final class CheatingMan implements KonfigurationManager {
                : this.man.update();
     }
 
+    /**
+     * Same instance if the source has no update.
+     */
     @NotNull
     public CheatingMan updated() {
-        return this.source instanceof UpdatableSource
-               ? new CheatingMan(((UpdatableSource) this.source).updatedSelf())
-               : this;
+        if (!(this.source instanceof UpdatableSource))
+            return this;
+        final UpdatableSource updated = ((UpdatableSource) this.source).updatedSelf();
+        return updated == this.source ? this : new CheatingMan(updated);
     }
 
 }
@@ -0,0 +1,115 @@
+package io.koosha.konfiguration.v8;
+
+import io.koosha.konfiguration.error.KfgSourceException;
+import lombok.NonNull;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Reads a file whole onto the heap, and hands the parsers a stream over the
+ * bytes, so they read them with no decoding into a string.
+ *
+ * <p>The file is not mapped: a file truncated or rewritten in place while a
+ * mapping of it is read (as an editor save or a deploy does, right when a
+ * watcher triggers a read) crashes the reading thread with an
+ * {@link InternalError}, and on some platforms a mapped file can not be
+ * replaced or deleted until the mapping is garbage collected. For files of
+ * konfig size, a copy on the heap costs next to nothing.
+ */
+@ThreadSafe
+@ApiStatus.Internal
+final class ExtFileStream {
+
+    private ExtFileStream() {
+    }
+
+    /**
+     * Reads the file anew on each call, the file may have been replaced since.
+     *
+     * @param name name of the source reading the file, for error messages.
+     * @param file the file to read.
+     *
+     * @return provider of streams over the file's current content.
+     *
+     * @throws KfgSourceException (from the provider) if the file can not be
+     *                            read.
+     */
+    @NotNull
+    @Contract(pure = true)
+    static Opener of(@NotNull @NonNull final String name,
+                     @NotNull @NonNull final Path file) {
+        return new Opener(name, file);
+    }
+
+    /**
+     * The file backing a stream provider, if it is one made by
+     * {@link #of(String, Path)}.
+     *
+     * @param stream the provider to check.
+     *
+     * @return files the provider reads, empty if it is not a file provider.
+     */
+    @NotNull
+    @Contract(pure = true)
+    static Collection<Path> files(@Nullable final Supplier<? extends InputStream> stream) {
+        return stream instanceof Opener
+               ? singletonList(((Opener) stream).file)
+               : emptyList();
+    }
+
+    /**
+     * Reads the rest of the given stream, so that a checksum over it is of the
+     * whole stream.
+     */
+    static void drain(@NotNull @NonNull final InputStream in) throws IOException {
+        final byte[] buffer = new byte[8192];
+        //noinspection StatementWithEmptyBody
+        while (in.read(buffer) >= 0) {
+        }
+    }
+
+    @Immutable
+    @ThreadSafe
+    static final class Opener implements Supplier<InputStream> {
+
+        @NotNull
+        private final String name;
+
+        @NotNull
+        private final Path file;
+
+        private Opener(@NotNull @NonNull final String name,
+                       @NotNull @NonNull final Path file) {
+            this.name = name;
+            this.file = file;
+        }
+
+        @NotNull
+        @Override
+        public InputStream get() {
+            try {
+                return new ByteArrayInputStream(Files.readAllBytes(this.file));
+            }
+            catch (final IOException e) {
+                throw new KfgSourceException(this.name, "error reading file: " + this.file, e);
+            }
+        }
+
+    }
+
+}
@@ -3,18 +3,26 @@ package io.koosha.konfiguration.v8;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.type.CollectionType;
-import com.fasterxml.jackson.databind.type.MapType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import io.koosha.konfiguration.Source;
+import io.koosha.konfiguration.base.DiffableSource;
+import io.koosha.konfiguration.base.Fingerprinter;
 import io.koosha.konfiguration.base.UpdatableSource;
 import io.koosha.konfiguration.base.UpdatableSourceBase;
+import io.koosha.konfiguration.base.WatchableSource;
 import io.koosha.konfiguration.error.*;
 import io.koosha.konfiguration.error.extended.KfgJacksonError;
 import io.koosha.konfiguration.type.Q;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.Synchronized;
 import lombok.experimental.Accessors;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
@@ -24,30 +32,102 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
+import static java.util.Collections.*;
 import static java.util.Objects.requireNonNull;
 
 /**
- * Reads konfig from a json source (supplied as string).
+ * Reads konfig from a json source (supplied as string, or as a stream).
  *
  * <p>for {@link #custom(Q)} to work, the supplied json reader must be
  * configured to handle arbitrary types accordingly.
  *
- * <p>Thread safe and immutable.
+ * <p>The json is streamed into a flat index of its scalars and arrays, keyed
+ * by dotted path, no tree of the whole document is ever built. Objects are
+ * put together out of their children only when asked for, and are then kept.
+ *
+ * <p>Thread safe and immutable. The index is never modified nor handed out
+ * after construction, so reads need no locking. Each read gets its own
+ * parser over the nodes.
  */
 @Immutable
 @ThreadSafe
 @ApiStatus.Internal
-final class ExtJacksonJsonSource extends UpdatableSourceBase {
+final class ExtJacksonJsonSource extends UpdatableSourceBase implements DiffableSource, WatchableSource {
 
     private final Supplier<ObjectMapper> mapperSupplier;
+    private final ObjectMapper mapper;
+
+    /**
+     * Exactly one of json and stream is set.
+     */
+    @Nullable
     private final Supplier<String> json;
-    private final int lastHash;
-    private final JsonNode root;
+    @Nullable
+    private final Supplier<? extends InputStream> stream;
+
+    /**
+     * Tells if json has changed. With a stream, it is only asked to
+     * {@link Fingerprinter#peek()}, and if it can not tell or is null, the
+     * stream is checksummed while being read.
+     */
+    @Nullable
+    private final Fingerprinter<? super String> fingerprinter;
+    @NotNull
+    private final Object lastFingerprint;
+
+    /**
+     * Every scalar and array in the json, keyed by its dotted path. Built once,
+     * the json never changes during the lifetime of this source.
+     */
+    private final Map<String, JsonNode> index;
+
+    /**
+     * Field names of every object in the json, keyed by its dotted path, the
+     * root being the empty path.
+     */
+    private final Map<String, List<String>> objects;
+
+    /**
+     * Objects put together out of the index so far.
+     */
+    private final Map<String, JsonNode> materialized = new ConcurrentHashMap<>();
+
+    private final Set<String> keys;
+
+    /**
+     * Upper bound on typed values kept deserialized, past it values are
+     * deserialized on every read.
+     */
+    static final int MAX_VALUES = 1024;
+
+    /**
+     * Typed values already deserialized out of the index.
+     *
+     * <p>The very same value is handed to every read of the key, by every
+     * caller, so values must not be mutated.
+     */
+    private final Map<Q<?>, Object> values = new ConcurrentHashMap<>();
+
+    /**
+     * Readers used to deserialize values, one per target type regardless of
+     * key, so bounded by the types the code asks for.
+     */
+    private final Map<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
 
     @NonNull
     @NotNull
@@ -81,29 +161,137 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
     ExtJacksonJsonSource(@NotNull @NonNull final String name,
                          @NotNull @NonNull final Supplier<String> json,
                          @NonNull @NotNull final Supplier<ObjectMapper> objectMapper) {
+        this(name, json, objectMapper, Fingerprinter.digest());
+    }
+
+    /**
+     * Same as {@link #ExtJacksonJsonSource(String, Supplier, Supplier)}, with
+     * the given strategy to tell if json has changed.
+     */
+    ExtJacksonJsonSource(@NotNull @NonNull final String name,
+                         @NotNull @NonNull final Supplier<String> json,
+                         @NonNull @NotNull final Supplier<ObjectMapper> objectMapper,
+                         @NonNull @NotNull final Fingerprinter<? super String> fingerprinter) {
+        this(name, json, null, objectMapper, fingerprinter, fingerprinter.peek(), json.get(), null);
+    }
+
+    /**
+     * The payload is fetched by the caller, so that the very same payload
+     * checked for update is the one parsed. Exactly one of fetchedJson and
+     * fetchedStream is set, matching json and stream.
+     */
+    private ExtJacksonJsonSource(@NotNull @NonNull final String name,
+                                 @Nullable final Supplier<String> json,
+                                 @Nullable final Supplier<? extends InputStream> stream,
+                                 @NonNull @NotNull final Supplier<ObjectMapper> objectMapper,
+                                 @Nullable final Fingerprinter<? super String> fingerprinter,
+                                 @Nullable final Object peeked,
+                                 @Nullable final String fetchedJson,
+                                 @Nullable final InputStream fetchedStream) {
         this.name = name;
         // Check early, so we're not fooled with a dummy object reader.
         ensureDep(name);
 
         this.json = json;
+        this.stream = stream;
+        this.fingerprinter = fingerprinter;
         this.mapperSupplier = objectMapper;
-
-        requireNonNull(this.json.get(), "supplied json is null");
-        requireNonNull(this.mapperSupplier.get(), "supplied mapper is null");
-
-        final JsonNode update;
-        try {
-            update = this.mapperSupplier.get().readTree(this.json.get());
+        this.mapper = requireNonNull(this.mapperSupplier.get(), "supplied mapper is null");
+
+        final Map<String, JsonNode> index = new HashMap<>();
+        final Map<String, List<String>> objects = new HashMap<>();
+        if (json != null) {
+            final String newJson = requireNonNull(fetchedJson, "supplied json is null");
+            try (final JsonParser parser = this.mapper.getFactory().createParser(newJson)) {
+                this.ingest(parser, index, objects);
+            }
+            catch (final IOException e) {
+                throw new KfgJacksonError(this.name(), "error parsing json string", e);
+            }
+            this.lastFingerprint = peeked != null ? peeked : requireNonNull(fingerprinter).of(newJson);
         }
-        catch (final IOException e) {
-            // XXX
-            throw new KfgJacksonError(this.name(), "error parsing json string", e);
+        else {
+            final CRC32 crc = new CRC32();
+            try (final InputStream in = new CheckedInputStream(
+                    requireNonNull(fetchedStream, "supplied json is null"), crc);
+                 final JsonParser parser = this.mapper.getFactory().createParser(in)) {
+                this.ingest(parser, index, objects);
+                ExtFileStream.drain(in);
+            }
+            catch (final IOException e) {
+                throw new KfgJacksonError(this.name(), "error parsing json stream", e);
+            }
+            this.lastFingerprint = peeked != null ? peeked : crc.getValue();
         }
 
-        requireNonNull(update, "root element is null");
+        this.index = unmodifiableMap(index);
+        this.objects = unmodifiableMap(objects);
+        final Set<String> keys = new HashSet<>(index.keySet());
+        keys.addAll(objects.keySet());
+        keys.remove("");
+        this.keys = unmodifiableSet(keys);
+    }
+
+    /**
+     * Creates an instance reading the json off the given stream provider. The
+     * stream is read only once and closed by this source.
+     *
+     * @param name         name of this source
+     * @param json         backing store provider. Must always return a
+     *                     non-null stream of a valid json.
+     * @param objectMapper {@link ObjectMapper} provider, same as with
+     *                     {@link #ExtJacksonJsonSource(String, Supplier, Supplier)}.
+     *
+     * @return a json source reading the given stream.
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    static ExtJacksonJsonSource stream(@NotNull @NonNull final String name,
+                                       @NotNull @NonNull final Supplier<? extends InputStream> json,
+                                       @NonNull @NotNull final Supplier<ObjectMapper> objectMapper) {
+        return stream(name, json, objectMapper, null);
+    }
+
+    /**
+     * Same as {@link #stream(String, Supplier, Supplier)}, first asking the
+     * given fingerprinter to {@link Fingerprinter#peek()} on each poll, the
+     * stream is not read at all if it tells nothing changed.
+     *
+     * @param name          name of this source
+     * @param json          backing store provider.
+     * @param objectMapper  {@link ObjectMapper} provider.
+     * @param fingerprinter peeks at the stream's fingerprint, if null or if
+     *                      it can not tell, the stream is checksummed.
+     *
+     * @return a json source reading the given stream.
+     */
+    @NotNull
+    @Contract("_, _, _, _ -> new")
+    static ExtJacksonJsonSource stream(@NotNull @NonNull final String name,
+                                       @NotNull @NonNull final Supplier<? extends InputStream> json,
+                                       @NonNull @NotNull final Supplier<ObjectMapper> objectMapper,
+                                       @Nullable final Fingerprinter<? super String> fingerprinter) {
+        final Object peeked = fingerprinter == null ? null : fingerprinter.peek();
+        return new ExtJacksonJsonSource(name, null, json, objectMapper, fingerprinter, peeked, null, json.get());
+    }
 
-        this.root = update;
-        this.lastHash = this.json.get().hashCode();
+    /**
+     * Creates an instance reading the given file, see {@link ExtFileStream}.
+     * The file is only read again when its modification time, size or
+     * identity changes.
+     *
+     * @param name         name of this source
+     * @param file         the json file.
+     * @param objectMapper {@link ObjectMapper} provider.
+     *
+     * @return a json source reading the given file.
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    static ExtJacksonJsonSource file(@NotNull @NonNull final String name,
+                                     @NotNull @NonNull final Path file,
+                                     @NonNull @NotNull final Supplier<ObjectMapper> objectMapper) {
+        return stream(name, ExtFileStream.of(name, file), objectMapper, Fingerprinter.file(file));
     }
 
     @Contract(pure = true,
@@ -116,6 +304,51 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
         return mapper;
     }
 
+    private void ingest(@NotNull @NonNull final JsonParser parser,
+                        @NotNull @NonNull final Map<String, JsonNode> index,
+                        @NotNull @NonNull final Map<String, List<String>> objects) throws IOException {
+        final JsonToken first = parser.nextToken();
+        requireNonNull(first, "root element is null");
+        // Anything but an object has no keys.
+        if (first == JsonToken.START_OBJECT)
+            this.ingestObject(parser, "", index, objects);
+        else
+            parser.skipChildren();
+    }
+
+    /**
+     * Reads the fields of the object the parser is at, arrays are read whole,
+     * they are only ever asked for whole.
+     */
+    private void ingestObject(@NotNull @NonNull final JsonParser parser,
+                              @NotNull @NonNull final String path,
+                              @NotNull @NonNull final Map<String, JsonNode> index,
+                              @NotNull @NonNull final Map<String, List<String>> objects) throws IOException {
+        final List<String> fields = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final String key = path.isEmpty() ? field : path + "." + field;
+            fields.add(field);
+            // A field name with a dot in it may clash with a nested path,
+            // whichever comes first wins.
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                if (index.containsKey(key) || objects.containsKey(key))
+                    parser.skipChildren();
+                else
+                    this.ingestObject(parser, key, index, objects);
+            }
+            else {
+                final JsonNode value = token == JsonToken.VALUE_NULL
+                                       ? NullNode.getInstance()
+                                       : this.mapper.readTree(parser);
+                if (!objects.containsKey(key))
+                    index.putIfAbsent(key, value);
+            }
+        }
+        objects.putIfAbsent(path, unmodifiableList(fields));
+    }
+
     private static void ensureDep(@Nullable final String source) {
         try {
             Class.forName("com.fasterxml.jackson.databind.JsonNode");
@@ -130,30 +363,138 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
     @Contract(pure = true)
     @Override
     public boolean hasUpdate() {
-        final String newJson = this.json.get();
-        return newJson != null && newJson.hashCode() != this.lastHash;
+        if (this.json != null) {
+            final Fingerprinter<? super String> fingerprinter = requireNonNull(this.fingerprinter);
+            final Object peeked = fingerprinter.peek();
+            if (peeked != null)
+                return !peeked.equals(this.lastFingerprint);
+            final String newJson = this.json.get();
+            return newJson != null && !fingerprinter.of(newJson).equals(this.lastFingerprint);
+        }
+
+        final Object peeked = this.fingerprinter == null ? null : this.fingerprinter.peek();
+        if (peeked != null)
+            return !peeked.equals(this.lastFingerprint);
+        final CRC32 crc = new CRC32();
+        try (final InputStream in = requireNonNull(this.stream).get()) {
+            if (in == null)
+                return false;
+            ExtFileStream.drain(new CheckedInputStream(in, crc));
+        }
+        catch (final IOException e) {
+            throw new KfgJacksonError(this.name(), "error reading json stream", e);
+        }
+        return !this.lastFingerprint.equals(crc.getValue());
     }
 
+    /**
+     * Fetches the payload at most once, and parses that same payload if it
+     * changed. A stream's checksum is only known once read, so it is parsed
+     * while being checked and the result thrown away if nothing changed.
+     */
     @Contract(pure = true,
             value = "-> new")
     @NotNull
     @Override
     public UpdatableSource updatedSelf() {
-        return this.hasUpdate()
-               ? new ExtJacksonJsonSource(this.name(), this.json, this.mapperSupplier)
-               : this;
+        if (this.json != null) {
+            final Fingerprinter<? super String> fingerprinter = requireNonNull(this.fingerprinter);
+            final Object peeked = fingerprinter.peek();
+            if (peeked != null && peeked.equals(this.lastFingerprint))
+                return this;
+            final String newJson = this.json.get();
+            if (newJson == null)
+                return this;
+            final Object fingerprint = peeked != null ? peeked : fingerprinter.of(newJson);
+            return fingerprint.equals(this.lastFingerprint)
+                   ? this
+                   : new ExtJacksonJsonSource(this.name(), this.json, null, this.mapperSupplier,
+                           fingerprinter, fingerprint, newJson, null);
+        }
+
+        final Object peeked = this.fingerprinter == null ? null : this.fingerprinter.peek();
+        if (peeked != null && peeked.equals(this.lastFingerprint))
+            return this;
+        final InputStream newStream = requireNonNull(this.stream).get();
+        if (newStream == null)
+            return this;
+        final ExtJacksonJsonSource updated = new ExtJacksonJsonSource(
+                this.name(), null, this.stream, this.mapperSupplier, this.fingerprinter, peeked, null, newStream);
+        return updated.lastFingerprint.equals(this.lastFingerprint) ? this : updated;
     }
 
     private JsonNode node_(@NonNull @NotNull final String key) {
         if (key.isEmpty())
             throw new KfgIllegalArgumentException(this.name(), "empty konfig key");
 
-        //noinspection HardcodedFileSeparator
-        final String saneKey = key.replace('.', '/');
-        return this.root.findPath(saneKey);
+        final JsonNode node = this.index.get(key);
+        if (node != null)
+            return node;
+        if (this.objects.containsKey(key))
+            return this.object(key);
+        return MissingNode.getInstance();
+    }
+
+    /**
+     * Puts the object at the given path together out of its children.
+     */
+    @NotNull
+    private JsonNode object(@NonNull @NotNull final String path) {
+        final JsonNode cached = this.materialized.get(path);
+        if (cached != null)
+            return cached;
+
+        final ObjectNode object = this.mapper.getNodeFactory().objectNode();
+        for (final String field : this.objects.get(path))
+            object.set(field, this.node_(path + "." + field));
+
+        final JsonNode raced = this.materialized.putIfAbsent(path, object);
+        return raced == null ? object : raced;
+    }
+
+    @NotNull
+    @Override
+    @Contract(pure = true)
+    public Set<String> keys() {
+        return this.keys;
+    }
+
+    @NotNull
+    @Override
+    @Contract(pure = true)
+    public Collection<Path> files() {
+        return ExtFileStream.files(this.stream);
+    }
+
+    /**
+     * Compares the flat indexes path by path, objects only matter as far as
+     * their presence goes, their fields are compared on their own paths.
+     */
+    @Nullable
+    @Override
+    @Contract(pure = true)
+    public Set<String> diff(@NotNull @NonNull final Source previous) {
+        if (!(previous instanceof ExtJacksonJsonSource))
+            return null;
+        final ExtJacksonJsonSource old = (ExtJacksonJsonSource) previous;
+        final Set<String> changed = new HashSet<>();
+        this.index.forEach((key, value) -> {
+            if (!value.equals(old.index.get(key)))
+                changed.add(key);
+        });
+        for (final String key : old.index.keySet())
+            if (!this.index.containsKey(key))
+                changed.add(key);
+        for (final String key : this.objects.keySet())
+            if (!old.objects.containsKey(key))
+                changed.add(key);
+        for (final String key : old.objects.keySet())
+            if (!this.objects.containsKey(key))
+                changed.add(key);
+        changed.remove("");
+        return changed;
     }
 
-    @Synchronized
     private JsonNode node(@NotNull @NonNull final String key) {
         if (key.isEmpty())
             throw new KfgIllegalArgumentException(this.name(), "empty konfig key");
@@ -178,13 +519,11 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
     }
 
     @Override
-    @Synchronized
     protected boolean isNull(@NonNull @NotNull final Q<?> key) {
         return this.node(key.key()).isNull();
     }
 
     @Override
-    @Synchronized
     public boolean has(@NotNull @NonNull final Q<?> key) {
 
         if (this.node_(key.key()).isMissingNode())
@@ -220,7 +559,6 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
 
     @Override
     @NotNull
-    @Synchronized
     protected Boolean bool0(@NotNull @NonNull final String key) {
         final JsonNode at = this.node(key);
         return this.ensureJsonType(at.isBoolean(), Q.bool(key), at, key).asBoolean();
@@ -228,7 +566,6 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
 
     @Override
     @NotNull
-    @Synchronized
     protected Character char0(@NotNull @NonNull final String key) {
         final JsonNode at = this.node(key);
         return this.ensureJsonType(at.isTextual() && at.textValue().length() == 1, Q.string(key), at, key)
@@ -238,7 +575,6 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
 
     @Override
     @NotNull
-    @Synchronized
     protected String string0(@NotNull @NonNull final String key) {
         final JsonNode at = this.node(key);
         return this.ensureJsonType(at.isTextual(), Q.string(key), at, key).asText();
@@ -246,7 +582,6 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
 
     @NotNull
     @Override
-    @Synchronized
     protected Number number0(@NotNull @NonNull final String key) {
         final JsonNode at = this.node(key);
         return this.ensureJsonType(at.isShort() || at.isInt() || at.isLong(),
@@ -255,7 +590,6 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
 
     @NotNull
     @Override
-    @Synchronized
     protected Number numberDouble0(@NotNull @NonNull final String key) {
         final JsonNode at = this.node(key);
         return this.ensureJsonType(
@@ -270,83 +604,107 @@ final class ExtJacksonJsonSource extends UpdatableSourceBase {
 
     @NotNull
     @Override
-    @Synchronized
     protected List<?> list0(@NotNull final Q<? extends List<?>> type) {
         final JsonNode at = this.node(type.key());
         this.ensureJsonType(at.isArray(), Q.unknownList(type.key()), at, type.key());
-        final ObjectMapper reader = this.mapperSupplier.get();
-        final CollectionType javaType = reader
-                .getTypeFactory()
-                .constructCollectionType(List.class, type.getCollectionContainedClass());
-
-        try {
-            return reader.readValue(at.traverse(), javaType);
-        }
-        catch (final IOException e) {
-            throw new KfgTypeException(this.name(), type, at, "type mismatch", e);
-        }
+        return this.memo(type, () -> {
+            final ObjectReader reader = this.reader(tf -> tf.constructCollectionType(
+                    List.class, type.getCollectionContainedClass()));
+            try {
+                return unmodifiableList(reader.readValue(at.traverse()));
+            }
+            catch (final IOException e) {
+                throw new KfgTypeException(this.name(), type, at, "type mismatch", e);
+            }
+        });
     }
 
     @NotNull
     @Override
-    @Synchronized
     protected Set<?> set0(@NotNull final Q<? extends Set<?>> key) {
         final JsonNode at = this.node(key.key());
-
         this.ensureJsonType(at.isArray(), Q.unknownSet(key.key()), at, key.key());
-        final ObjectMapper reader = this.mapperSupplier.get();
-        final CollectionType javaType = reader
-                .getTypeFactory()
-                .constructCollectionType(Set.class, key.getCollectionContainedClass());
-
-        final Set<?> set;
-
-        try {
-            set = reader.readValue(at.traverse(), javaType);
-        }
-        catch (final IOException e) {
-            throw new KfgTypeException(this.name(), Q.unknownList(key.key()), key, "type mismatch", e);
-        }
-
-        final List<?> list = this.list0(Q.unknownList(key.key()));
-        if (list.size() != set.size())
-            throw new KfgTypeException(this.name(), key, at, "type mismatch, duplicate values in set");
-
-        return set;
+        return this.memo(key, () -> {
+            final ObjectReader reader = this.reader(tf -> tf.constructCollectionType(
+                    Set.class, key.getCollectionContainedClass()));
+            final Set<?> set;
+            try {
+                set = reader.readValue(at.traverse());
+            }
+            catch (final IOException e) {
+                throw new KfgTypeException(this.name(), Q.unknownList(key.key()), key, "type mismatch", e);
+            }
+
+            // Same as comparing with the list, without parsing it again.
+            if (at.size() != set.size())
+                throw new KfgTypeException(this.name(), key, at, "type mismatch, duplicate values in set");
+
+            return unmodifiableSet(set);
+        });
     }
 
     @Override
     @NotNull
-    @Synchronized
     protected Map<?, ?> map0(@NotNull final Q<? extends Map<?, ?>> key) {
         final JsonNode at = this.node(key.key());
         this.ensureJsonType(at.isObject(), Q.unknownMap(key.key()), at, key.key());
-        final ObjectMapper reader = this.mapperSupplier.get();
-        final MapType javaType = reader
-                .getTypeFactory()
-                .constructMapType(Map.class, key.getMapKeyClass(), key.getMapValueClass());
-
-        try {
-            return reader.readValue(at.traverse(), javaType);
-        }
-        catch (final IOException e) {
-            throw new KfgTypeException(this.name(), Q.unknownList(key.key()), key, "type mismatch", e);
-        }
+        return this.memo(key, () -> {
+            final ObjectReader reader = this.reader(tf -> tf.constructMapType(
+                    Map.class, key.getMapKeyClass(), key.getMapValueClass()));
+            try {
+                return unmodifiableMap(reader.readValue(at.traverse()));
+            }
+            catch (final IOException e) {
+                throw new KfgTypeException(this.name(), Q.unknownList(key.key()), key, "type mismatch", e);
+            }
+        });
     }
 
     @Override
     @NotNull
-    @Synchronized
     protected Object custom0(@NotNull @NonNull final Q<?> key) {
-        final ObjectMapper reader = this.mapperSupplier.get();
-        final JsonParser traverse = this.node(key.key()).traverse();
+        final JsonNode at = this.node(key.key());
+        return this.memo(key, () -> {
+            final ObjectReader reader = this.reader(tf -> tf.constructType(key.klass()));
+            try {
+                return reader.readValue(at.traverse());
+            }
+            catch (final IOException e) {
+                throw new KfgTypeException(this.name(), key, null, "jackson error", e);
+            }
+        });
+    }
 
-        try {
-            return reader.readValue(traverse, key.klass());
-        }
-        catch (final IOException e) {
-            throw new KfgTypeException(this.name(), key, null, "jackson error", e);
-        }
+    /**
+     * Reader of the given type, built only once per type.
+     */
+    @NotNull
+    private ObjectReader reader(@NotNull @NonNull final Function<TypeFactory, JavaType> type) {
+        return this.readers.computeIfAbsent(
+                type.apply(this.mapper.getTypeFactory()), this.mapper::readerFor);
+    }
+
+    /**
+     * Deserialize the value only once for the lifetime of this source, the
+     * tree it is read from never changes. Up to {@link #MAX_VALUES} values.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T memo(@NotNull @NonNull final Q<?> q,
+                       @NotNull @NonNull final Supplier<T> read) {
+        final Object cached = this.values.get(q);
+        if (cached != null)
+            return (T) cached;
+
+        final T value = read.get();
+        if (value == null)
+            return null;
+
+        // Racy on the bound, off by a few is fine.
+        if (this.values.size() >= MAX_VALUES)
+            return value;
+
+        final Object raced = this.values.putIfAbsent(q, value);
+        return raced == null ? value : (T) raced;
     }
 
 }
@@ -1,7 +1,11 @@
 package io.koosha.konfiguration.v8;
 
+import io.koosha.konfiguration.Source;
+import io.koosha.konfiguration.base.DiffableSource;
+import io.koosha.konfiguration.base.Fingerprinter;
 import io.koosha.konfiguration.base.UpdatableSource;
 import io.koosha.konfiguration.base.UpdatableSourceBase;
+import io.koosha.konfiguration.base.VersionedMap;
 import io.koosha.konfiguration.error.KfgIllegalStateException;
 import io.koosha.konfiguration.error.KfgMissingKeyException;
 import io.koosha.konfiguration.error.KfgTypeException;
@@ -13,28 +17,53 @@ import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Supplier;
-import java.util.regex.Pattern;
 
-import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 
 @ThreadSafe
 @ApiStatus.Internal
-final class ExtMapSource extends UpdatableSourceBase {
-
-    private static final Pattern DOT = Pattern.compile(Pattern.quote("."));
+final class ExtMapSource extends UpdatableSourceBase implements DiffableSource {
 
     private final Supplier<Map<String, ?>> map;
     private final Map<String, ?> root;
-    private final int lastHash;
+
+    /**
+     * Root, and if nested maps are enabled, every value nested in it by its
+     * dotted path.
+     */
+    private final Map<String, ?> flat;
+    private final Fingerprinter<? super Map<String, ?>> fingerprinter;
+    private final Object lastFingerprint;
     private final boolean enableNestedMap;
 
+    /**
+     * Set if backed by a versioned map, in which case the fingerprint is the
+     * map's version.
+     */
+    @Nullable
+    private final VersionedMap versioned;
+
+    /**
+     * Keys changed since the fingerprint of the source this one is updated
+     * from, as told by the versioned map. Null if not known.
+     */
+    @Nullable
+    private final Set<String> changed;
+
+    @Nullable
+    private final Object changedFrom;
+
     @NonNull
     @NotNull
     @Accessors(fluent = true)
@@ -45,22 +74,84 @@ final class ExtMapSource extends UpdatableSourceBase {
     ExtMapSource(@NotNull @NonNull final String name,
                  @NonNull @NotNull final Supplier<Map<String, ?>> map,
                  final boolean enableNestedMap) {
+        this(name, map, enableNestedMap, Fingerprinter.hashed());
+    }
+
+    /**
+     * Same as {@link #ExtMapSource(String, Supplier, boolean)}, with the given
+     * strategy to tell if the map has changed.
+     */
+    ExtMapSource(@NotNull @NonNull final String name,
+                 @NonNull @NotNull final Supplier<Map<String, ?>> map,
+                 final boolean enableNestedMap,
+                 @NonNull @NotNull final Fingerprinter<? super Map<String, ?>> fingerprinter) {
+        this(name, map, enableNestedMap, fingerprinter, fingerprinter.peek(), map.get());
+    }
+
+    /**
+     * The payload is fetched by the caller, so that the very same map checked
+     * for update is the one copied.
+     */
+    private ExtMapSource(@NotNull @NonNull final String name,
+                         @NonNull @NotNull final Supplier<Map<String, ?>> map,
+                         final boolean enableNestedMap,
+                         @NonNull @NotNull final Fingerprinter<? super Map<String, ?>> fingerprinter,
+                         @Nullable final Object peeked,
+                         @Nullable final Map<String, ?> fetched) {
+        this(name, map, enableNestedMap, fingerprinter,
+                peeked != null ? peeked : fingerprinter.of(requireNonNull(fetched, "supplied map is null")),
+                new HashMap<>(requireNonNull(fetched, "supplied map is null")),
+                null, null, null);
+    }
+
+    /**
+     * Root is owned by this source, not copied.
+     */
+    private ExtMapSource(@NotNull @NonNull final String name,
+                         @NonNull @NotNull final Supplier<Map<String, ?>> map,
+                         final boolean enableNestedMap,
+                         @NonNull @NotNull final Fingerprinter<? super Map<String, ?>> fingerprinter,
+                         @NotNull @NonNull final Object fingerprint,
+                         @NotNull @NonNull final Map<String, ?> root,
+                         @Nullable final VersionedMap versioned,
+                         @Nullable final Object changedFrom,
+                         @Nullable final Set<String> changed) {
         this.name = name;
         this.map = map;
-        this.root = new HashMap<>(map.get());
+        this.root = root;
+        this.flat = enableNestedMap ? flatten(root) : root;
         this.enableNestedMap = enableNestedMap;
-        this.lastHash = this.root.hashCode();
-        requireNonNull(this.map.get(), "supplied map is null");
+        this.fingerprinter = fingerprinter;
+        this.lastFingerprint = fingerprint;
+        this.versioned = versioned;
+        this.changedFrom = changedFrom;
+        this.changed = changed;
+    }
+
+    /**
+     * Backed by the given versioned map, see {@link VersionedMap}.
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    static ExtMapSource versioned(@NotNull @NonNull final String name,
+                                  @NonNull @NotNull final VersionedMap map,
+                                  final boolean enableNestedMap) {
+        // Version first, a change in between is seen again on next poll.
+        final long version = map.version();
+        return new ExtMapSource(name, map::map, enableNestedMap,
+                Fingerprinter.version(map::version), version,
+                new HashMap<>(requireNonNull(map.map(), "supplied map is null")),
+                map, null, null);
     }
 
     @Contract(pure = true)
     @Override
     public boolean hasUpdate() {
+        final Object peeked = this.fingerprinter.peek();
+        if (peeked != null)
+            return !peeked.equals(this.lastFingerprint);
         final Map<String, ?> newMap = this.map.get();
-        if (newMap == null)
-            return false;
-        final int newHash = newMap.hashCode();
-        return newHash != this.lastHash;
+        return newMap != null && !this.fingerprinter.of(newMap).equals(this.lastFingerprint);
     }
 
     @Contract(pure = true,
@@ -68,34 +159,92 @@ final class ExtMapSource extends UpdatableSourceBase {
     @NotNull
     @Override
     public UpdatableSource updatedSelf() {
-        return this.hasUpdate()
-               ? new ExtMapSource(this.name(), this.map, this.enableNestedMap)
-               : this;
+        final Object peeked = this.fingerprinter.peek();
+        if (peeked != null && peeked.equals(this.lastFingerprint))
+            return this;
+        if (this.versioned != null)
+            return this.updatedVersioned((Long) requireNonNull(peeked));
+        final Map<String, ?> newMap = this.map.get();
+        if (newMap == null)
+            return this;
+        final Object fingerprint = peeked != null ? peeked : this.fingerprinter.of(newMap);
+        return fingerprint.equals(this.lastFingerprint)
+               ? this
+               : new ExtMapSource(this.name(), this.map, this.enableNestedMap,
+                       this.fingerprinter, fingerprint, newMap);
     }
 
+    /**
+     * Applies only the changed keys onto a copy of this source's root, if the
+     * map can tell them.
+     */
     @NotNull
-    @Contract(pure = true)
-    private Object node(@NonNull @NotNull final String key) {
-        if (!this.root.containsKey(key)) {
-            if (this.enableNestedMap) {
-                final List<String> parts = asList(DOT.split(key));
-                Object storedObject = this.root.get(parts.get(0));
-                int i = 0;
-                while (i++ < parts.size() && storedObject instanceof Map) {
-                    final String newKey = String.join(".", parts.subList(i, parts.size()));
-                    final Map<?, ?> mm = (Map<?, ?>) storedObject;
-                    if (mm.containsKey(newKey))
-                        return mm.get(newKey);
-                    storedObject = mm.get(parts.get(1));
-                }
-            }
-            throw new KfgIllegalStateException(this.name(), "missing key: " + key);
+    @Contract(pure = true,
+            value = "_ -> new")
+    private ExtMapSource updatedVersioned(@NotNull @NonNull final Long version) {
+        requireNonNull(this.versioned);
+        final Set<String> changed = this.versioned.changedSince((Long) this.lastFingerprint);
+        final Map<String, ?> current = requireNonNull(this.versioned.map(), "supplied map is null");
+        final Map<String, Object> root;
+        if (changed == null) {
+            root = new HashMap<>(current);
+        }
+        else {
+            root = new HashMap<>(this.root);
+            for (final String key : changed)
+                if (current.containsKey(key))
+                    root.put(key, current.get(key));
+                else
+                    root.remove(key);
         }
+        return new ExtMapSource(this.name(), this.map, this.enableNestedMap,
+                this.fingerprinter, version, root, this.versioned,
+                this.lastFingerprint, changed == null ? null : new HashSet<>(changed));
+    }
 
-        if (this.root.get(key) == null)
-            throw new KfgIllegalStateException(this.name(), "null key: " + key);
+    /**
+     * Keys of the root win over nested paths, and at each level of nesting,
+     * keys (dotted or not) of a map win over the paths nested deeper in it.
+     */
+    @NotNull
+    @Contract(pure = true)
+    private static Map<String, ?> flatten(@NotNull @NonNull final Map<String, ?> root) {
+        final Map<String, Object> flat = new HashMap<>(root);
+        final Set<Object> path = Collections.newSetFromMap(new IdentityHashMap<>());
+        root.forEach((key, value) -> {
+            if (value instanceof Map)
+                flatten((Map<?, ?>) value, key + ".", flat, path);
+        });
+        return flat;
+    }
+
+    private static void flatten(@NotNull @NonNull final Map<?, ?> node,
+                                @NotNull @NonNull final String prefix,
+                                @NotNull @NonNull final Map<String, Object> flat,
+                                @NotNull @NonNull final Set<Object> path) {
+        // A map nested in itself.
+        if (!path.add(node))
+            return;
+        node.forEach((k, v) -> {
+            if (k instanceof String)
+                flat.putIfAbsent(prefix + k, v);
+        });
+        node.forEach((k, v) -> {
+            if (k instanceof String && v instanceof Map)
+                flatten((Map<?, ?>) v, prefix + k + ".", flat, path);
+        });
+        path.remove(node);
+    }
 
-        return this.root.get(key);
+    @NotNull
+    @Contract(pure = true)
+    private Object node(@NonNull @NotNull final String key) {
+        final Object value = this.flat.get(key);
+        if (value != null)
+            return value;
+        if (!this.flat.containsKey(key))
+            throw new KfgIllegalStateException(this.name(), "missing key: " + key);
+        throw new KfgIllegalStateException(this.name(), "null key: " + key);
     }
 
     private <T> T ensureStoredType(@NotNull @NonNull final Q<?> required) {
@@ -109,15 +258,44 @@ final class ExtMapSource extends UpdatableSourceBase {
 
     @Override
     protected boolean isNull(@NonNull @NotNull final Q<?> key) {
-        return this.root.get(key.key()) == null;
+        return this.flat.get(key.key()) == null;
     }
 
     public boolean has(@NotNull @NonNull final Q<?> key) {
-        if (!this.root.containsKey(key.key()))
+        if (!this.flat.containsKey(key.key()))
             return false;
         return super.has(key);
     }
 
+    @NotNull
+    @Override
+    @Contract(pure = true)
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(this.flat.keySet());
+    }
+
+    @Nullable
+    @Override
+    @Contract(pure = true)
+    public Set<String> diff(@NotNull @NonNull final Source previous) {
+        if (!(previous instanceof ExtMapSource))
+            return null;
+        if (this.changed != null
+                && ((ExtMapSource) previous).versioned == this.versioned
+                && Objects.equals(((ExtMapSource) previous).lastFingerprint, this.changedFrom))
+            return Collections.unmodifiableSet(this.changed);
+        final Map<String, ?> old = ((ExtMapSource) previous).flat;
+        final Set<String> changed = new HashSet<>();
+        this.flat.forEach((key, value) -> {
+            if (!old.containsKey(key) || !Objects.equals(value, old.get(key)))
+                changed.add(key);
+        });
+        for (final String key : old.keySet())
+            if (!this.flat.containsKey(key))
+                changed.add(key);
+        return changed;
+    }
+
     @Override
     @NotNull
     protected Boolean bool0(@NotNull @NonNull final String key) {
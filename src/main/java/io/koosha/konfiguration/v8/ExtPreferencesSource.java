@@ -1,6 +1,8 @@
 package io.koosha.konfiguration.v8;
 
+import io.koosha.konfiguration.Source;
 import io.koosha.konfiguration.base.Deserializer;
+import io.koosha.konfiguration.base.DiffableSource;
 import io.koosha.konfiguration.base.UpdatableSource;
 import io.koosha.konfiguration.base.UpdatableSourceBase;
 import io.koosha.konfiguration.error.KfgIllegalStateException;
@@ -10,7 +12,7 @@ import io.koosha.konfiguration.error.extended.KfgPreferencesError;
 import io.koosha.konfiguration.type.Q;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.SneakyThrows;
+import lombok.RequiredArgsConstructor;
 import lombok.experimental.Accessors;
 import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.ApiStatus;
@@ -18,11 +20,14 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.prefs.BackingStoreException;
+import java.util.prefs.NodeChangeEvent;
 import java.util.prefs.NodeChangeListener;
+import java.util.prefs.PreferenceChangeEvent;
+import java.util.prefs.PreferenceChangeListener;
 import java.util.prefs.Preferences;
 
 /**
@@ -37,15 +42,52 @@ import java.util.prefs.Preferences;
  *
  * <p>Thread safe and immutable.
  *
- * <p>For now, pref change listener is not used
+ * <p>Changes are tracked by preference and node change listeners registered
+ * on the whole tree, each change moving a version counter forward, so
+ * checking for update needs no read of the preferences. As stated by
+ * {@link Preferences}, changes made by other JVMs might not be notified, and
+ * notifications are delivered asynchronously.
+ *
+ * <p>In snapshot mode the whole tree is read once into memory, and lookups
+ * never touch the backing store (which, for the file backed implementation,
+ * might mean a disk read under a global lock). A fresh snapshot is taken on
+ * update.
  */
 @ApiStatus.Internal
 @ThreadSafe
-final class ExtPreferencesSource extends UpdatableSourceBase {
+final class ExtPreferencesSource extends UpdatableSourceBase implements DiffableSource {
 
     private final Deserializer deser;
     private final Preferences source;
-    private final int lastHash;
+
+    /**
+     * Shared by all the sources reading the same node.
+     */
+    private final Tracker tracker;
+    private final long lastVersion;
+
+    /**
+     * Dotted key -> raw value, of all the keys visible through this source.
+     * Null unless in snapshot mode.
+     */
+    @Nullable
+    private final Map<String, String> snapshot;
+
+    /**
+     * Upper bound on custom values kept decoded, so keys read once (or keys
+     * long gone from the preferences) can not grow it without limit.
+     */
+    static final int MAX_DECODED = 1024;
+
+    /**
+     * Custom values deserialized so far, shared by this source and all the
+     * sources it's updated into. Valid as long as the raw value is the same.
+     *
+     * <p>The very same value is handed to every read of the key, by every
+     * caller, so values must not be mutated.
+     */
+    @NotNull
+    private final Map<Q<?>, Decoded> decoded;
 
     @NonNull
     @NotNull
@@ -56,70 +98,151 @@ final class ExtPreferencesSource extends UpdatableSourceBase {
     ExtPreferencesSource(@NotNull @NonNull final String name,
                          @NonNull @NotNull final Preferences preferences,
                          @Nullable final Deserializer deserializer) {
+        this(name, preferences, deserializer, false);
+    }
+
+    /**
+     * @param snapshot whether to read the whole tree into memory once, see
+     *                 class doc.
+     */
+    ExtPreferencesSource(@NotNull @NonNull final String name,
+                         @NonNull @NotNull final Preferences preferences,
+                         @Nullable final Deserializer deserializer,
+                         final boolean snapshot) {
+        this.name = name;
+        this.source = preferences;
+        this.deser = deserializer;
+        this.tracker = Tracker.of(name, preferences);
+        this.lastVersion = this.tracker.version();
+        this.snapshot = snapshot ? snapshot(name, preferences) : null;
+        this.decoded = new ConcurrentHashMap<>();
+    }
+
+    private ExtPreferencesSource(@NotNull @NonNull final String name,
+                                 @NonNull @NotNull final Preferences preferences,
+                                 @Nullable final Deserializer deserializer,
+                                 @NotNull @NonNull final Tracker tracker,
+                                 final long lastVersion,
+                                 final boolean snapshot,
+                                 @NotNull @NonNull final Map<Q<?>, Decoded> decoded) {
         this.name = name;
         this.source = preferences;
         this.deser = deserializer;
-        this.lastHash = this.hashOf();
+        this.tracker = tracker;
+        this.lastVersion = lastVersion;
+        this.snapshot = snapshot ? snapshot(name, preferences) : null;
+        this.decoded = decoded;
     }
 
     @Contract(pure = true)
     @Override
     public boolean hasUpdate() {
-        return this.lastHash != this.hashOf();
+        return this.lastVersion != this.tracker.version();
     }
 
-    @Contract(mutates = "this")
+    /**
+     * Unless in snapshot mode reads are live on the preferences, and a new
+     * instance only marks the changes up to now as seen.
+     */
+    @Contract(pure = true)
     @Override
     @NotNull
     public UpdatableSource updatedSelf() {
-        return this;
+        final long version = this.tracker.version();
+        return version == this.lastVersion
+               ? this
+               : new ExtPreferencesSource(this.name(), this.source, this.deser,
+                this.tracker, version, this.snapshot != null, this.decoded);
+    }
+
+    @NotNull
+    @Override
+    @Contract(pure = true)
+    public Set<String> keys() {
+        if (this.snapshot != null)
+            return this.snapshot.keySet();
+        try {
+            final Set<String> keys = new HashSet<>();
+            //noinspection HardcodedFileSeparator
+            for (final String key : this.source.keys())
+                keys.add(key.replace('/', '.'));
+            return keys;
+        }
+        catch (final BackingStoreException e) {
+            throw new KfgSourceException(this.name(), "could not list keys", e);
+        }
+    }
+
+    @Nullable
+    @Override
+    @Contract(pure = true)
+    public Set<String> diff(@NotNull @NonNull final Source previous) {
+        if (!(previous instanceof ExtPreferencesSource)
+                || ((ExtPreferencesSource) previous).tracker != this.tracker)
+            return null;
+        return this.tracker.changed(((ExtPreferencesSource) previous).lastVersion, this.lastVersion);
     }
 
     @Override
     protected boolean isNull(@NonNull @NotNull final Q<?> key) {
-        return this.source.get(this.sane(key.key()), "") == null;
+        return this.raw(key.key()) == null;
     }
 
     @Override
     public boolean has(@NotNull @NonNull final Q<?> key) {
-        final String sane;
+        final String raw;
         try {
-            sane = this.sane(key.key());
+            raw = this.raw(key.key());
         }
         catch (final KfgIllegalStateException e) {
             return false;
         }
+        if (raw == null)
+            return false;
 
-        if (key.isByte())
-            return this.source.getInt(sane, 0) == this.source.getInt(sane, 1)
-                    && this.source.getInt(sane, 0) <= Byte.MAX_VALUE
-                    && this.source.getInt(sane, 0) >= Byte.MIN_VALUE;
-        if (key.isShort())
-            return this.source.getInt(sane, 0) == this.source.getInt(sane, 1)
-                    && this.source.getInt(sane, 0) <= Short.MAX_VALUE
-                    && this.source.getInt(sane, 0) >= Short.MIN_VALUE;
-        if (key.isInt())
-            return this.source.getInt(sane, 0) == this.source.getInt(sane, 1);
-        if (key.isLong())
-            return this.source.getLong(sane, 0) == this.source.getLong(sane, 1);
-        if (key.isFloat())
-            return this.source.getFloat(sane, 0) == this.source.getFloat(sane, 1);
-        if (key.isDouble())
-            return this.source.getDouble(sane, 0) == this.source.getDouble(sane, 1);
+        // Same parsing as done by AbstractPreferences' typed getters, on a
+        // single read.
+        try {
+            if (key.isByte()) {
+                final int i = Integer.parseInt(raw);
+                return i <= Byte.MAX_VALUE && i >= Byte.MIN_VALUE;
+            }
+            if (key.isShort()) {
+                final int i = Integer.parseInt(raw);
+                return i <= Short.MAX_VALUE && i >= Short.MIN_VALUE;
+            }
+            if (key.isInt()) {
+                Integer.parseInt(raw);
+                return true;
+            }
+            if (key.isLong()) {
+                Long.parseLong(raw);
+                return true;
+            }
+            if (key.isFloat()) {
+                Float.parseFloat(raw);
+                return true;
+            }
+            if (key.isDouble()) {
+                Double.parseDouble(raw);
+                return true;
+            }
+        }
+        catch (final NumberFormatException e) {
+            return false;
+        }
 
         if (key.isBool())
-            return this.source.getBoolean(sane, false) == this.source.getBoolean(sane, true);
+            return "true".equalsIgnoreCase(raw) || "false".equalsIgnoreCase(raw);
         if (key.isChar())
-            return this.source.get(sane, "").length() == 1;
+            return raw.length() == 1;
         if (key.isString())
-            return Objects.equals(this.source.get(sane, ""), this.source.get(sane, " "));
-
+            return true;
 
-        //noinspection ArrayObjectsEquals
-        if (Objects.equals(this.source.getByteArray(sane, null),
-                this.source.getByteArray(sane, new byte[]{1})))
+        if (bytes(raw) != null && this.deser != null)
             try {
-                this.deser.apply(this.source.getByteArray(this.sane(key.key()), new byte[0]), key);
+                // Kept, so that reading the value does not decode it again.
+                this.decode(key);
                 return true;
             }
             catch (final UnsupportedOperationException u) {
@@ -129,97 +252,295 @@ final class ExtPreferencesSource extends UpdatableSourceBase {
         return false;
     }
 
-    @SneakyThrows
+    /**
+     * Raw value of the key, the very same string the typed getters of
+     * preferences parse.
+     *
+     * @throws KfgIllegalStateException if the key is missing.
+     */
+    @Nullable
+    @Contract(pure = true)
+    private String raw(@NotNull @NonNull final String key) {
+        if (this.snapshot == null)
+            return this.source.get(this.sane(key), null);
+        if (!this.snapshot.containsKey(key))
+            throw new KfgIllegalStateException(this.name(), "missing key; " + key);
+        return this.snapshot.get(key);
+    }
+
+    /**
+     * Deserialized value of the key, decoded only if its raw value has
+     * changed since last decoded.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T decode(@NotNull @NonNull final Q<T> key) {
+        if (this.deser == null)
+            throw new KfgPreferencesError(this.name(), "deserializer not set");
+
+        final String raw = this.raw(key.key());
+        final Decoded cached = this.decoded.get(key);
+        // Same instance as long as the snapshot is the same.
+        if (cached != null && (cached.raw == raw || Objects.equals(cached.raw, raw)))
+            return (T) cached.value;
+
+        final byte[] bytes = raw == null ? null : bytes(raw);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes == null ? new byte[0] : bytes).asReadOnlyBuffer();
+        final T value = this.deser.apply(buffer, key);
+        // Racy on the bound, off by a few is fine.
+        if (this.decoded.size() < MAX_DECODED || this.decoded.containsKey(key))
+            this.decoded.put(key, new Decoded(raw, value));
+        return value;
+    }
+
+    /**
+     * As decoded by {@link Preferences#getByteArray(String, byte[])}, null if
+     * not valid.
+     */
+    @Nullable
+    @Contract(pure = true)
+    private static byte[] bytes(@NotNull @NonNull final String raw) {
+        try {
+            return Base64.getDecoder().decode(raw);
+        }
+        catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     @Contract(pure = true,
             value = "_->new")
     private String sane(@NotNull @NonNull final String key) {
         //noinspection HardcodedFileSeparator
         final String sane = key.replace('.', '/');
+        final boolean exists;
         try {
-            if (!this.source.nodeExists(sane))
-                throw new KfgIllegalStateException(this.name(), "missing key; " + key);
+            exists = this.source.nodeExists(sane);
         }
         catch (final Throwable e) {
             throw new KfgSourceException(this.name(), "error checking existence of key: " + key, e);
         }
+        if (!exists)
+            throw new KfgIllegalStateException(this.name(), "missing key; " + key);
         return sane;
     }
 
-    private int hashOf() {
-        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    /**
+     * All the keys visible through {@link #sane(String)}, and their values.
+     */
+    @NotNull
+    @Contract(pure = true)
+    private static Map<String, String> snapshot(@NotNull @NonNull final String name,
+                                                @NotNull @NonNull final Preferences preferences) {
+        final Map<String, String> snapshot = new HashMap<>();
         try {
-            this.source.exportSubtree(buffer);
+            for (final String key : preferences.keys()) {
+                final String value = preferences.get(key, null);
+                if (value != null && preferences.nodeExists(key))
+                    //noinspection HardcodedFileSeparator
+                    snapshot.put(key.replace('/', '.'), value);
+            }
         }
-        catch (final IOException | BackingStoreException e) {
-            throw new KfgSourceException(this.name(), "could not calculate hash of the java.util.prefs.Preferences source", e);
+        catch (final BackingStoreException | IllegalArgumentException e) {
+            throw new KfgSourceException(name, "could not read preferences", e);
         }
-        return Arrays.hashCode(buffer.toByteArray());
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    @RequiredArgsConstructor
+    private static final class Decoded {
+
+        @Nullable
+        private final String raw;
+
+        @Nullable
+        private final Object value;
+
+    }
+
+    /**
+     * Listens on a preferences tree, moving the version forward on each
+     * change and remembering the latest changed keys.
+     *
+     * <p>Listeners can not be told when a source is dropped, and preferences
+     * nodes usually live as long as the JVM does, so there is a single
+     * tracker per node, shared by all the sources reading it.
+     */
+    @ThreadSafe
+    static final class Tracker implements PreferenceChangeListener, NodeChangeListener {
+
+        /**
+         * Upper bound on changes remembered, older ones are forgotten and
+         * diffs reaching back to them can not be told.
+         */
+        static final int MAX_CHANGES = 4096;
+
+        /**
+         * The node holds its tracker (as its listener), the tracker does not
+         * hold the node.
+         */
+        private static final Map<Preferences, Tracker> TRACKERS =
+                Collections.synchronizedMap(new WeakHashMap<>());
+
+        @NotNull
+        private final String rootPath;
+
+        private long version = 0;
+
+        /**
+         * Version -> dotted key changed at that version.
+         */
+        @NotNull
+        private final NavigableMap<Long, String> changes = new TreeMap<>();
+
+        private Tracker(@NotNull @NonNull final Preferences root) {
+            this.rootPath = root.absolutePath();
+        }
+
+        @NotNull
+        static Tracker of(@NotNull @NonNull final String name,
+                          @NotNull @NonNull final Preferences root) {
+            return TRACKERS.computeIfAbsent(root, node -> {
+                final Tracker tracker = new Tracker(node);
+                try {
+                    tracker.listen(node);
+                }
+                catch (final BackingStoreException e) {
+                    throw new KfgSourceException(name, "could not listen on preferences", e);
+                }
+                return tracker;
+            });
+        }
+
+        private void listen(@NotNull @NonNull final Preferences node) throws BackingStoreException {
+            node.addPreferenceChangeListener(this);
+            node.addNodeChangeListener(this);
+            for (final String child : node.childrenNames())
+                this.listen(node.node(child));
+        }
+
+        synchronized long version() {
+            return this.version;
+        }
+
+        /**
+         * Keys changed after version from, up to and including version to,
+         * null if some are forgotten.
+         */
+        @Nullable
+        synchronized Set<String> changed(final long from,
+                                         final long to) {
+            if (from < to && !this.changes.containsKey(from + 1))
+                return null;
+            return new HashSet<>(this.changes.subMap(from, false, to, true).values());
+        }
+
+        private synchronized void changed(@NotNull @NonNull final Preferences node,
+                                          @Nullable final String key) {
+            final String abs = node.absolutePath();
+            String path = abs.length() > this.rootPath.length()
+                          ? abs.substring(this.rootPath.length())
+                          : "";
+            //noinspection HardcodedFileSeparator
+            if (path.startsWith("/"))
+                path = path.substring(1);
+            if (key != null)
+                //noinspection HardcodedFileSeparator
+                path = path.isEmpty() ? key : path + "/" + key;
+            //noinspection HardcodedFileSeparator
+            this.changes.put(++this.version, path.replace('/', '.'));
+            this.changes.headMap(this.version - MAX_CHANGES, true).clear();
+        }
+
+        @Override
+        public void preferenceChange(@NotNull @NonNull final PreferenceChangeEvent evt) {
+            this.changed(evt.getNode(), evt.getKey());
+        }
+
+        @Override
+        public void childAdded(@NotNull @NonNull final NodeChangeEvent evt) {
+            try {
+                this.listen(evt.getChild());
+            }
+            catch (final BackingStoreException | IllegalStateException e) {
+                // Removed in the meanwhile, reported by its own event.
+            }
+            this.changed(evt.getChild(), null);
+        }
+
+        @Override
+        public void childRemoved(@NotNull @NonNull final NodeChangeEvent evt) {
+            this.changed(evt.getChild(), null);
+        }
+
     }
 
 
     @Override
     @NotNull
     protected Object bool0(@NotNull @NonNull final String key) {
-        return this.source.getBoolean(this.sane(key), false);
+        return "true".equalsIgnoreCase(this.raw(key));
     }
 
     @Override
     @NotNull
     protected Object char0(@NotNull @NonNull final String key) {
-        final String s = ((String) this.string0(this.sane(key)));
+        final String s = ((String) this.string0(key));
         if (s.length() != 1)
             throw new KfgTypeException(this.name(), Q.char_(key), s);
-        return ((CharSequence) this.string0(this.sane(key))).charAt(0);
+        return s.charAt(0);
     }
 
     @Override
     @NotNull
     protected Object string0(@NotNull @NonNull final String key) {
-        return this.source.get(this.sane(key), null);
+        return this.raw(key);
     }
 
     @Override
     @NotNull
     protected Number number0(@NotNull @NonNull final String key) {
-        return this.source.getLong(this.sane(key), 0);
+        try {
+            return Long.parseLong(this.raw(key));
+        }
+        catch (final NumberFormatException e) {
+            return 0L;
+        }
     }
 
     @Override
     @NotNull
     protected Number numberDouble0(@NotNull @NonNull final String key) {
-        return this.source.getDouble(this.sane(key), 0);
+        try {
+            //noinspection ConstantConditions
+            return Double.parseDouble(this.raw(key));
+        }
+        catch (final NumberFormatException | NullPointerException e) {
+            return 0D;
+        }
     }
 
     @Override
     @NotNull
     protected List<?> list0(@NotNull @NonNull final Q<? extends List<?>> type) {
-        if (this.deser == null)
-            throw new KfgPreferencesError(this.name(), "deserializer not set");
-        return this.deser.apply(this.source.getByteArray(this.sane(type.key()), new byte[0]), type);
+        return this.decode(type);
     }
 
     @Override
     @NotNull
     protected Set<?> set0(@NotNull @NonNull final Q<? extends Set<?>> key) {
-        if (this.deser == null)
-            throw new KfgPreferencesError(this.name(), "deserializer not set");
-        return this.deser.apply(this.source.getByteArray(this.sane(key.key()), new byte[0]), key);
+        return this.decode(key);
     }
 
     @Override
     @NotNull
     protected Map<?, ?> map0(@NotNull @NonNull final Q<? extends Map<?, ?>> key) {
-        if (this.deser == null)
-            throw new KfgPreferencesError(this.name(), "deserializer not set");
-        return this.deser.apply(this.source.getByteArray(this.sane(key.key()), new byte[0]), key);
+        return this.decode(key);
     }
 
     @Override
     @NotNull
     protected Object custom0(@NotNull @NonNull final Q<?> key) {
-        if (this.deser == null)
-            throw new KfgPreferencesError(this.name(), "deserializer not set");
-        return this.deser.apply(this.source.getByteArray(this.sane(key.key()), new byte[0]), key);
+        return this.decode(key);
     }
 
 }
@@ -1,7 +1,11 @@
 package io.koosha.konfiguration.v8;
 
+import io.koosha.konfiguration.Source;
+import io.koosha.konfiguration.base.DiffableSource;
+import io.koosha.konfiguration.base.Fingerprinter;
 import io.koosha.konfiguration.base.UpdatableSource;
 import io.koosha.konfiguration.base.UpdatableSourceBase;
+import io.koosha.konfiguration.base.WatchableSource;
 import io.koosha.konfiguration.error.KfgAssertionException;
 import io.koosha.konfiguration.error.KfgTypeException;
 import io.koosha.konfiguration.error.KfgUnsupportedOperationException;
@@ -17,19 +21,36 @@ import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.nodes.MappingNode;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.NodeTuple;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.SequenceNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.reader.UnicodeReader;
 import org.yaml.snakeyaml.error.YAMLException;
 
 import java.beans.ConstructorProperties;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import static java.util.Objects.requireNonNull;
 
 /**
- * Reads konfig from a yaml source (supplied as string).
+ * Reads konfig from a yaml source (supplied as string, or as a stream).
  *
  * <p>for {@link #custom(Q)} to work, the supplied yaml reader must be
  * configured to handle arbitrary types accordingly.
@@ -39,27 +60,64 @@ import static java.util.Objects.requireNonNull;
 @ApiStatus.Internal
 @Immutable
 @ThreadSafe
-final class ExtYamlSource extends UpdatableSourceBase {
-
-    private static final Pattern DOT = Pattern.compile(Pattern.quote("."));
+final class ExtYamlSource extends UpdatableSourceBase implements DiffableSource, WatchableSource {
 
     private static final ThreadLocal<Yaml> defaultYamlSupplier = new ThreadLocal<>();
 
+    /**
+     * Stands in for null values, {@link ConcurrentHashMap} does not take them.
+     */
+    private static final Object NULL = new Object();
+
     private final boolean safe;
 
     private final Supplier<Yaml> mapper;
 
+    @Nullable
     private final Supplier<String> yaml;
 
+    @Nullable
+    private final Supplier<? extends InputStream> stream;
+
+    /**
+     * Null if lazy.
+     */
+    @Nullable
     private final Map<String, ?> root;
 
+    /**
+     * Every value reachable from root, maps included, keyed by its dotted
+     * path. Built once, so that a read is a single lookup. Nested maps are
+     * kept as is, they are the subtree of their path.
+     * <p>
+     * If lazy, holds the composed nodes instead, constructed into values only
+     * when asked for.
+     */
+    private final Map<String, Object> flat;
+
+    private final boolean lazy;
+
+    /**
+     * Values constructed out of nodes so far, if lazy.
+     */
+    private final Map<String, Object> constructed = new ConcurrentHashMap<>();
+
     @NonNull
     @NotNull
     @Getter
     @Accessors(fluent = true)
     private final String name;
 
-    private final int lastHash;
+    /**
+     * Tells if yaml has changed. With a stream, it is only asked to
+     * {@link Fingerprinter#peek()}, and if it can not tell, the stream is
+     * checksummed while being read.
+     */
+    @NotNull
+    private final Fingerprinter<? super String> fingerprinter;
+
+    @NotNull
+    private final Object lastFingerprint;
 
     /**
      * Creates an instance with the given Yaml parser.
@@ -78,10 +136,70 @@ final class ExtYamlSource extends UpdatableSourceBase {
                   @NotNull @NonNull final Supplier<String> yaml,
                   @NotNull @NonNull final Supplier<Yaml> mapper,
                   final boolean safe) {
+        this(name, yaml, mapper, safe, Fingerprinter.digest());
+    }
+
+    /**
+     * Same as {@link #ExtYamlSource(String, Supplier, Supplier, boolean)}, with
+     * the given strategy to tell if yaml has changed.
+     */
+    ExtYamlSource(@NotNull @NonNull final String name,
+                  @NotNull @NonNull final Supplier<String> yaml,
+                  @NotNull @NonNull final Supplier<Yaml> mapper,
+                  final boolean safe,
+                  @NotNull @NonNull final Fingerprinter<? super String> fingerprinter) {
+        this(name, yaml, null, mapper, safe, false, fingerprinter, fingerprinter.peek(), yaml.get(), null);
+    }
+
+    /**
+     * Only composes the yaml into nodes, values are constructed out of their
+     * node the first time they are asked for, and kept. Cuts the cost of
+     * loading large documents of which few keys are read, custom types are
+     * constructed only if read.
+     *
+     * @param name   name of this source.
+     * @param yaml   backing store provider. Must always return a non-null
+     *               valid yaml string.
+     * @param mapper {@link Yaml} provider, same as with
+     *               {@link #ExtYamlSource(String, Supplier, Supplier, boolean)}.
+     * @param safe   same as with
+     *               {@link #ExtYamlSource(String, Supplier, Supplier, boolean)}.
+     *
+     * @return a lazy yaml source.
+     */
+    @NotNull
+    @Contract("_, _, _, _ -> new")
+    static ExtYamlSource lazy(@NotNull @NonNull final String name,
+                              @NotNull @NonNull final Supplier<String> yaml,
+                              @NotNull @NonNull final Supplier<Yaml> mapper,
+                              final boolean safe) {
+        final Fingerprinter<String> fingerprinter = Fingerprinter.digest();
+        return new ExtYamlSource(name, yaml, null, mapper, safe, true,
+                fingerprinter, fingerprinter.peek(), yaml.get(), null);
+    }
+
+    /**
+     * The payload is fetched by the caller, so that the very same payload
+     * checked for update is the one parsed. Exactly one of fetchedYaml and
+     * fetchedStream is set, matching yaml and stream.
+     */
+    private ExtYamlSource(@NotNull @NonNull final String name,
+                          @Nullable final Supplier<String> yaml,
+                          @Nullable final Supplier<? extends InputStream> stream,
+                          @NotNull @NonNull final Supplier<Yaml> mapper,
+                          final boolean safe,
+                          final boolean lazy,
+                          @NotNull @NonNull final Fingerprinter<? super String> fingerprinter,
+                          @Nullable final Object peeked,
+                          @Nullable final String fetchedYaml,
+                          @Nullable final InputStream fetchedStream) {
         this.name = name;
         this.yaml = yaml;
+        this.stream = stream;
         this.mapper = mapper;
         this.safe = safe;
+        this.lazy = lazy;
+        this.fingerprinter = fingerprinter;
 
         ensureDep(name);
 
@@ -96,20 +214,148 @@ final class ExtYamlSource extends UpdatableSourceBase {
                             " class: org.yaml.snakeyaml.Yaml", e);
         }
 
-        final String newYaml = this.yaml.get();
-        requireNonNull(newYaml, "supplied storage is null");
-        this.lastHash = newYaml.hashCode();
-
         final Yaml newMapper = mapper.get();
         requireNonNull(newMapper, "supplied mapper is null");
-        this.root = Collections.unmodifiableMap(newMapper.load(newYaml));
+
+        final Object loaded;
+        if (yaml != null) {
+            final String newYaml = requireNonNull(fetchedYaml, "supplied storage is null");
+            this.lastFingerprint = peeked != null ? peeked : fingerprinter.of(newYaml);
+            loaded = lazy
+                     ? newMapper.compose(new StringReader(newYaml))
+                     : newMapper.load(newYaml);
+        }
+        else {
+            final CRC32 crc = new CRC32();
+            try (final InputStream in = new CheckedInputStream(
+                    requireNonNull(fetchedStream, "supplied storage is null"), crc)) {
+                loaded = lazy
+                         ? newMapper.compose(new UnicodeReader(in))
+                         : newMapper.load(in);
+                ExtFileStream.drain(in);
+            }
+            catch (final IOException e) {
+                throw new KfgSnakeYamlError(this.name(), "error reading yaml stream", e);
+            }
+            this.lastFingerprint = peeked != null ? peeked : crc.getValue();
+        }
+
+        final Map<String, Object> flat = new HashMap<>();
+        if (lazy) {
+            this.root = null;
+            if (loaded instanceof MappingNode)
+                flatten((MappingNode) loaded, "", flat);
+            else if (loaded != null)
+                throw new KfgSnakeYamlError(this.name(), "root of yaml is not a map");
+        }
+        else {
+            @SuppressWarnings("unchecked")
+            final Map<String, ?> root = (Map<String, ?>) loaded;
+            this.root = Collections.unmodifiableMap(root);
+            flatten(this.root, "", flat);
+        }
+        this.flat = Collections.unmodifiableMap(flat);
+    }
+
+    /**
+     * Keys with a dot in them can not be told apart from a nested path, they
+     * were never reachable and are left out.
+     */
+    private static void flatten(@NotNull @NonNull final Map<?, ?> node,
+                                @NotNull @NonNull final String prefix,
+                                @NotNull @NonNull final Map<String, Object> flat) {
+        node.forEach((k, v) -> {
+            // Only string keys are reachable through get().
+            if (!(k instanceof String) || ((String) k).indexOf('.') >= 0)
+                return;
+            final String key = prefix + k;
+            flat.put(key, v);
+            if (v instanceof Map)
+                flatten((Map<?, ?>) v, key + ".", flat);
+        });
+    }
+
+    /**
+     * Same as {@link #flatten(Map, String, Map)} over the composed nodes.
+     * Merged mappings ({@code <<}) are taken in, their keys never override
+     * the keys of the mapping they are merged into, same as a shallow merge
+     * by snake yaml.
+     */
+    private static void flatten(@NotNull @NonNull final MappingNode node,
+                                @NotNull @NonNull final String prefix,
+                                @NotNull @NonNull final Map<String, Object> flat) {
+        final List<Node> merged = new ArrayList<>();
+        final Set<String> explicit = new HashSet<>();
+        for (final NodeTuple tuple : node.getValue()) {
+            final Node k = tuple.getKeyNode();
+            final Node v = tuple.getValueNode();
+            if (k.getTag().equals(Tag.MERGE)) {
+                if (v instanceof SequenceNode)
+                    merged.addAll(((SequenceNode) v).getValue());
+                else
+                    merged.add(v);
+                continue;
+            }
+            if (!(k instanceof ScalarNode) || !k.getTag().equals(Tag.STR))
+                continue;
+            final String field = ((ScalarNode) k).getValue();
+            if (field.indexOf('.') >= 0)
+                continue;
+            explicit.add(field);
+            final String key = prefix + field;
+            flat.put(key, v);
+            if (v instanceof MappingNode)
+                flatten((MappingNode) v, key + ".", flat);
+        }
+        for (final Node m : merged) {
+            if (!(m instanceof MappingNode))
+                continue;
+            final Map<String, Object> mergedFlat = new HashMap<>();
+            flatten((MappingNode) m, prefix, mergedFlat);
+            final Set<String> fields = new HashSet<>();
+            mergedFlat.forEach((key, v) -> {
+                final String rest = key.substring(prefix.length());
+                final int dot = rest.indexOf('.');
+                final String field = dot < 0 ? rest : rest.substring(0, dot);
+                fields.add(field);
+                if (!explicit.contains(field))
+                    flat.put(key, v);
+            });
+            // Earlier merges win.
+            explicit.addAll(fields);
+        }
+    }
+
+    /**
+     * Creates an instance reading the given file (see {@link ExtFileStream}),
+     * decoded by snake yaml as it is read. The file is only read again
+     * when its modification time, size or identity changes.
+     *
+     * @param name   name of this source.
+     * @param file   the yaml file.
+     * @param mapper {@link Yaml} provider.
+     * @param safe   same as with
+     *               {@link #ExtYamlSource(String, Supplier, Supplier, boolean)}.
+     *
+     * @return a yaml source reading the given file.
+     */
+    @NotNull
+    @Contract("_, _, _, _ -> new")
+    static ExtYamlSource file(@NotNull @NonNull final String name,
+                              @NotNull @NonNull final Path file,
+                              @NotNull @NonNull final Supplier<Yaml> mapper,
+                              final boolean safe) {
+        final Supplier<InputStream> stream = ExtFileStream.of(name, file);
+        final Fingerprinter<Object> fingerprinter = Fingerprinter.file(file);
+        return new ExtYamlSource(name, null, stream, mapper, safe, false,
+                fingerprinter, fingerprinter.peek(), null, stream.get());
     }
 
     static Yaml getDefaultYamlSupplier() {
         ensureDep(Thread.currentThread().getName());
         Yaml y = defaultYamlSupplier.get();
         if (y == null) {
-            y = new Yaml(new ExtYamlSourceByConstructorConstructor<>(
+            y = new NodeYaml(new ExtYamlSourceByConstructorConstructor<>(
                     (Class<? extends ConstructorProperties>) ConstructorProperties.class,
                     (Function<? super ConstructorProperties, String[]>) ConstructorProperties::value
             ));
@@ -137,8 +383,24 @@ final class ExtYamlSource extends UpdatableSourceBase {
     @Contract(pure = true)
     @Override
     public boolean hasUpdate() {
-        final String newYaml = this.yaml.get();
-        return newYaml != null && newYaml.hashCode() != this.lastHash;
+        final Object peeked = this.fingerprinter.peek();
+        if (peeked != null)
+            return !peeked.equals(this.lastFingerprint);
+        if (this.yaml != null) {
+            final String newYaml = this.yaml.get();
+            return newYaml != null && !this.fingerprinter.of(newYaml).equals(this.lastFingerprint);
+        }
+
+        final CRC32 crc = new CRC32();
+        try (final InputStream in = requireNonNull(this.stream).get()) {
+            if (in == null)
+                return false;
+            ExtFileStream.drain(new CheckedInputStream(in, crc));
+        }
+        catch (final IOException e) {
+            throw new KfgSnakeYamlError(this.name(), "error reading yaml stream", e);
+        }
+        return !this.lastFingerprint.equals(crc.getValue());
     }
 
     @NotNull
@@ -146,9 +408,26 @@ final class ExtYamlSource extends UpdatableSourceBase {
             value = "-> new")
     @Override
     public UpdatableSource updatedSelf() {
-        return this.hasUpdate()
-               ? new ExtYamlSource(this.name(), this.yaml, this.mapper, this.safe)
-               : this;
+        final Object peeked = this.fingerprinter.peek();
+        if (peeked != null && peeked.equals(this.lastFingerprint))
+            return this;
+        if (this.yaml == null) {
+            final InputStream newStream = requireNonNull(this.stream).get();
+            if (newStream == null)
+                return this;
+            final ExtYamlSource updated = new ExtYamlSource(this.name(), null, this.stream, this.mapper,
+                    this.safe, this.lazy, this.fingerprinter, peeked, null, newStream);
+            return updated.lastFingerprint.equals(this.lastFingerprint) ? this : updated;
+        }
+
+        final String newYaml = this.yaml.get();
+        if (newYaml == null)
+            return this;
+        final Object fingerprint = peeked != null ? peeked : this.fingerprinter.of(newYaml);
+        return fingerprint.equals(this.lastFingerprint)
+               ? this
+               : new ExtYamlSource(this.name(), this.yaml, null, this.mapper, this.safe,
+                       this.lazy, this.fingerprinter, fingerprint, newYaml, null);
     }
 
     @Override
@@ -163,6 +442,8 @@ final class ExtYamlSource extends UpdatableSourceBase {
 
     @Override
     public boolean has(@NotNull @NonNull final Q<?> key) {
+        if (!this.flat.containsKey(key.key()))
+            return false;
         try {
             final Object o = this.get(key.key());
             if (key.matchesValue(o))
@@ -210,23 +491,110 @@ final class ExtYamlSource extends UpdatableSourceBase {
         }
     }
 
-    private Object get(@NotNull @NonNull final CharSequence key) {
-        Map<?, ?> node = this.root;
-        final String[] split = DOT.split(key);
-        for (int i = 0; i < split.length; i++) {
-            final String keyPart = split[i];
-            final Object nd = node.get(keyPart);
-            final boolean isLast = i == split.length - 1;
-
-            if (isLast)
-                return nd;
-            if (!(nd instanceof Map))
-                throw new KfgSnakeYamlAssertionError(this.name(), "assertion error");
-            node = (Map<?, ?>) nd;
-        }
+    @NotNull
+    @Override
+    @Contract(pure = true)
+    public Set<String> keys() {
+        return this.flat.keySet();
+    }
+
+    @NotNull
+    @Override
+    @Contract(pure = true)
+    public Collection<Path> files() {
+        return ExtFileStream.files(this.stream);
+    }
+
+    @Nullable
+    @Override
+    @Contract(pure = true)
+    public Set<String> diff(@NotNull @NonNull final Source previous) {
+        // Nodes can not be compared without constructing them.
+        if (!(previous instanceof ExtYamlSource) || this.root == null
+                || ((ExtYamlSource) previous).root == null)
+            return null;
+        final Set<String> changed = new HashSet<>();
+        diff(((ExtYamlSource) previous).root, this.root, "", changed);
+        return changed;
+    }
+
+    /**
+     * Walks both trees side by side, descending only where both have a map.
+     */
+    private static void diff(@NotNull @NonNull final Map<?, ?> old,
+                             @NotNull @NonNull final Map<?, ?> now,
+                             @NotNull @NonNull final String prefix,
+                             @NotNull @NonNull final Set<String> changed) {
+        now.forEach((k, v) -> {
+            if (!(k instanceof String))
+                return;
+            final String key = prefix + k;
+            final Object o = old.get(k);
+            if (v instanceof Map && o instanceof Map)
+                diff((Map<?, ?>) o, (Map<?, ?>) v, key + ".", changed);
+            else if (!old.containsKey(k) || !Objects.equals(v, o))
+                changed.add(key);
+        });
+        old.forEach((k, o) -> {
+            if (k instanceof String && !now.containsKey(k))
+                changed.add(prefix + k);
+        });
+    }
+
+    /**
+     * Null if the key is missing but its parent is a map, fails if the parent
+     * is missing or is not a map.
+     */
+    private Object get(@NotNull @NonNull final String key) {
+        final Object value = this.flat.get(key);
+        if (value != null || this.flat.containsKey(key))
+            return this.lazy ? this.construct(key, (Node) value) : value;
+        final int dot = key.lastIndexOf('.');
+        if (dot < 0)
+            return null;
+        final Object parent = this.flat.get(key.substring(0, dot));
+        if (parent instanceof Map || parent instanceof MappingNode)
+            return null;
         throw new KfgSnakeYamlAssertionError(this.name(), "assertion error");
     }
 
+    /**
+     * Nodes are constructed straight into values by the default yaml, see
+     * {@link NodeYaml}. Other yaml providers keep their constructor to
+     * themselves, so the node is emitted back as a document of its own and
+     * loaded, costing as much as the node itself, once.
+     */
+    @Nullable
+    private Object construct(@NotNull @NonNull final String key,
+                             @NotNull @NonNull final Node node) {
+        final Object cached = this.constructed.get(key);
+        if (cached != null)
+            return cached == NULL ? null : cached;
+
+        final Yaml mapper = this.mapper.get();
+        final Object value = mapper instanceof NodeYaml
+                             ? ((NodeYaml) mapper).construct(node)
+                             : this.reload(key, mapper, node);
+        this.constructed.putIfAbsent(key, value == null ? NULL : value);
+        return value;
+    }
+
+    @Nullable
+    private Object reload(@NotNull @NonNull final String key,
+                          @NotNull @NonNull final Yaml mapper,
+                          @NotNull @NonNull final Node node) {
+        final StringWriter out = new StringWriter();
+        final Emitter emitter = new Emitter(out, new DumperOptions());
+        try {
+            for (final Event event : mapper.serialize(node))
+                emitter.emit(event);
+        }
+        catch (final IOException e) {
+            throw new KfgSnakeYamlError(this.name(), "error constructing: " + key, e);
+        }
+        return mapper.load(out.toString());
+    }
+
     private void ensureSafe(@Nullable final Q<?> type) {
         if (this.safe && type != null && !type.args().isEmpty())
             throw new KfgSnakeYamlError(this.name, "yaml does not support parameterized yet.");
@@ -311,4 +679,21 @@ final class ExtYamlSource extends UpdatableSourceBase {
         }
     }
 
+    /**
+     * Default yaml, which lets lazy sources construct a value straight out of
+     * its node, instead of a round trip through yaml text.
+     */
+    static final class NodeYaml extends Yaml {
+
+        private NodeYaml(@NotNull @NonNull final ExtYamlSourceByConstructorConstructor<?> constructor) {
+            super(constructor);
+        }
+
+        @Nullable
+        Object construct(@NotNull @NonNull final Node node) {
+            return ((ExtYamlSourceByConstructorConstructor<?>) this.constructor).constructNode(node);
+        }
+
+    }
+
 }
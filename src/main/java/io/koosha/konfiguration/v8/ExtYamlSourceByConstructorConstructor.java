@@ -2,15 +2,20 @@ package io.koosha.konfiguration.v8;
 
 import io.koosha.konfiguration.error.KfgAssertionException;
 import io.koosha.konfiguration.error.KfgTypeException;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import org.jetbrains.annotations.NotNull;
 import org.yaml.snakeyaml.error.YAMLException;
 import org.yaml.snakeyaml.nodes.*;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Parameter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import static java.util.Arrays.asList;
@@ -24,6 +29,13 @@ final class ExtYamlSourceByConstructorConstructor<A extends Annotation> extends
     @NotNull
     private final Function<? super A, String[]> markerExtractor;
 
+    /**
+     * Constructors already resolved, so that constructing many objects of the
+     * same shape reflects only once.
+     */
+    @NotNull
+    private final Map<Shape, Resolved> resolved = new ConcurrentHashMap<>();
+
     ExtYamlSourceByConstructorConstructor(@NonNull @NotNull final Class<? extends A> marker,
                                           @NotNull @NonNull final Function<? super A, String[]> markerExtractor) {
         this.marker = marker;
@@ -31,13 +43,20 @@ final class ExtYamlSourceByConstructorConstructor<A extends Annotation> extends
         this.yamlClassConstructors.put(NodeId.mapping, new KonstructMapping());
     }
 
-    private static <A extends Annotation> Constructor<?> findByAnnotation(
+    /**
+     * Constructs a value straight out of a node of an already composed
+     * document, same as loading the node as a document of its own would.
+     */
+    Object constructNode(@NotNull @NonNull final Node node) {
+        return this.constructDocument(node);
+    }
+
+    private static <A extends Annotation> Resolved findByAnnotation(
             final Class<? extends A> marker,
             final Function<? super A, String[]> markerExtractor,
             final Class<?> origin,
             final LinkedHashMap<String, ? extends Param> cArgsByName,
-            final List<String> cArgNames,
-            final Object[] values) {
+            final List<String> cArgNames) {
         final List<Constructor<?>> constructors = Arrays
                 .stream(origin.getDeclaredConstructors())
                 .filter(it -> it.getAnnotation(marker) != null)
@@ -60,18 +79,14 @@ final class ExtYamlSourceByConstructorConstructor<A extends Annotation> extends
 
         final Constructor<?> ctor = constructors.get(0);
         final String[] names = markerExtractor.apply(ctor.getAnnotation(marker));
-        final Map<Integer, Integer> nameMapping = new HashMap<>();
-        for (int i = 0; i < names.length; i++) {
-            final String name = names[i];
-            nameMapping.put(i, cArgNames.indexOf(name));
-        }
-        final Object[] clone = values.clone();
-        nameMapping.forEach((cIndex, vIndex) -> values[cIndex] = clone[vIndex]);
+        final int[] order = new int[names.length];
+        for (int i = 0; i < names.length; i++)
+            order[i] = cArgNames.indexOf(names[i]);
 
-        return ctor;
+        return new Resolved(ctor, order);
     }
 
-    private static Constructor<?> findByParamType(
+    private static Resolved findByParamType(
             final Class<?> origin,
             final List<Class<?>> cArgTypes,
             final Object[] values) {
@@ -103,20 +118,92 @@ final class ExtYamlSourceByConstructorConstructor<A extends Annotation> extends
 
         final Constructor<?> ctor = constructors.get(0);
         final Class<?>[] pt = ctor.getParameterTypes();
-        final Object[] clone = values.clone();
-        assert pt.length == clone.length;
+        assert pt.length == values.length;
 
+        final int[] order = new int[pt.length];
         for0:
         for (int i = 0; i < pt.length; i++) {
-            for (final Object oo : clone)
-                if (oo == null || upper(pt[i]).isAssignableFrom(upper(oo.getClass()))) {
-                    values[i] = oo;
+            for (int j = 0; j < values.length; j++)
+                if (values[j] == null || upper(pt[i]).isAssignableFrom(upper(values[j].getClass()))) {
+                    order[i] = j;
                     continue for0;
                 }
             throw new KfgAssertionException("constructor and value mismatch");
         }
 
-        return ctor;
+        return new Resolved(ctor, order);
+    }
+
+    private static int[] identity(final int length) {
+        final int[] order = new int[length];
+        for (int i = 0; i < length; i++)
+            order[i] = i;
+        return order;
+    }
+
+    /**
+     * What a constructor is resolved by: the class, and names and types of
+     * the arguments. The classes of the values are in too, as matching by
+     * parameter type looks at them.
+     */
+    @EqualsAndHashCode
+    private static final class Shape {
+        private final Class<?> origin;
+        private final List<String> names;
+        private final List<Class<?>> types;
+        private final List<Class<?>> valueTypes;
+
+        private Shape(final Class<?> origin,
+                      final List<String> names,
+                      final Class<?>[] types,
+                      final Object[] values) {
+            this.origin = origin;
+            this.names = names;
+            this.types = asList(types);
+            this.valueTypes = Arrays.stream(values)
+                                    .map(v -> v == null ? null : v.getClass())
+                                    .collect(toList());
+        }
+    }
+
+    /**
+     * A constructor, and for each of its parameters, the index of the value
+     * to pass to it.
+     */
+    private static final class Resolved {
+        private final MethodHandle handle;
+        private final int[] order;
+
+        private Resolved(final Constructor<?> ctor,
+                         final int[] order) {
+            ctor.setAccessible(true);
+            try {
+                this.handle = MethodHandles
+                        .lookup()
+                        .unreflectConstructor(ctor)
+                        .asSpreader(Object[].class, order.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+            }
+            catch (final IllegalAccessException e) {
+                throw new YAMLException(e);
+            }
+            this.order = order;
+        }
+
+        private Object newInstance(final Object[] values) {
+            final Object[] args = new Object[this.order.length];
+            for (int i = 0; i < this.order.length; i++)
+                args[i] = values[this.order[i]];
+            try {
+                return (Object) this.handle.invokeExact(args);
+            }
+            catch (final Error e) {
+                throw e;
+            }
+            catch (final Throwable e) {
+                throw new YAMLException(e);
+            }
+        }
     }
 
 
@@ -260,15 +347,29 @@ final class ExtYamlSourceByConstructorConstructor<A extends Annotation> extends
                     .map(t -> t.value)
                     .toArray();
 
-            Constructor<?> c0;
+            final Shape shape = new Shape(node.getType(), names, types, values);
+            Resolved resolved = ExtYamlSourceByConstructorConstructor.this.resolved.get(shape);
+            if (resolved == null) {
+                resolved = resolve(node, consArgs, byName, names, types, values);
+                ExtYamlSourceByConstructorConstructor.this.resolved.putIfAbsent(shape, resolved);
+            }
+            return resolved.newInstance(values);
+        }
+
+        private Resolved resolve(final Node node,
+                                 final List<ParamNode> consArgs,
+                                 final LinkedHashMap<String, ParamNode> byName,
+                                 final List<String> names,
+                                 final Class<?>[] types,
+                                 final Object[] values) {
+            Resolved c0;
             try {
                 c0 = findByAnnotation(
                         marker,
                         markerExtractor,
                         node.getType(),
                         byName,
-                        names,
-                        values);
+                        names);
             }
             catch (final YAMLException y) {
                 c0 = null;
@@ -288,7 +389,7 @@ final class ExtYamlSourceByConstructorConstructor<A extends Annotation> extends
 
             if (c0 == null)
                 try {
-                    c0 = node.getType().getDeclaredConstructor(types);
+                    c0 = new Resolved(node.getType().getDeclaredConstructor(types), identity(types.length));
                 }
                 catch (final NoSuchMethodException e) {
                     // ignore
@@ -302,7 +403,7 @@ final class ExtYamlSourceByConstructorConstructor<A extends Annotation> extends
                             .map(t -> t.type)
                             .map(ExtYamlSourceByConstructorConstructor::upper)
                             .toArray(Class<?>[]::new);
-                    c0 = node.getType().getDeclaredConstructor(types2);
+                    c0 = new Resolved(node.getType().getDeclaredConstructor(types2), identity(types2.length));
                 }
                 catch (final NoSuchMethodException ex) {
                     c0 = null;
@@ -311,13 +412,7 @@ final class ExtYamlSourceByConstructorConstructor<A extends Annotation> extends
             if (c0 == null)
                 throw new KfgTypeException(null, null, null, "no liable constructor found");
 
-            try {
-                c0.setAccessible(true);
-                return c0.newInstance(values);
-            }
-            catch (final Exception e) {
-                throw new YAMLException(e);
-            }
+            return c0;
         }
     }
 
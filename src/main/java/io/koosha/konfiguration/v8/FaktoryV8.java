@@ -4,16 +4,23 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.koosha.konfiguration.Faktory;
 import io.koosha.konfiguration.KonfigurationBuilder;
 import io.koosha.konfiguration.KonfigurationManager;
+import io.koosha.konfiguration.KonfigurationWatcher;
 import io.koosha.konfiguration.Source;
 import io.koosha.konfiguration.base.Deserializer;
+import io.koosha.konfiguration.base.Fingerprinter;
+import io.koosha.konfiguration.base.VersionedMap;
+import io.koosha.konfiguration.error.KfgIllegalArgumentException;
 import lombok.NonNull;
 import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.yaml.snakeyaml.Yaml;
 
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
@@ -84,7 +91,32 @@ public final class FaktoryV8 implements Faktory {
         return new Kombiner(name(name), sources,
                 LOCK_WAIT_MILLIS__DEFAULT,
                 FAIR_LOCk__DEFAULT,
-                ALLOW_MIXED_TYPES__DEFAULT).man();
+                ALLOW_MIXED_TYPES__DEFAULT,
+                SNAPSHOT__DEFAULT,
+                OPTIMISTIC_READ__DEFAULT).man();
+    }
+
+    @Override
+    @NotNull
+    @Contract("_ -> new")
+    public KonfigurationWatcher watch(@NotNull @NonNull final KonfigurationManager manager) {
+        if (!(manager instanceof Kombiner_Manager))
+            throw new KfgIllegalArgumentException(manager.name(), "not a manager of this factory");
+        return new Kombiner_Watcher((Kombiner_Manager) manager);
+    }
+
+    @Override
+    @NotNull
+    @Contract("_, _, _, _, _ -> new")
+    public KonfigurationWatcher refresh(@NotNull @NonNull final KonfigurationManager manager,
+                                        final long intervalMillis,
+                                        final double jitter,
+                                        final long quietMillis,
+                                        final long maxBackoffMillis) {
+        if (!(manager instanceof Kombiner_Manager))
+            throw new KfgIllegalArgumentException(manager.name(), "not a manager of this factory");
+        return new Kombiner_Refresher((Kombiner_Manager) manager,
+                intervalMillis, jitter, quietMillis, maxBackoffMillis);
     }
 
     @NotNull
@@ -96,7 +128,9 @@ public final class FaktoryV8 implements Faktory {
                 singleton(CheatingMan.cheat(source)),
                 LOCK_WAIT_MILLIS__DEFAULT,
                 FAIR_LOCk__DEFAULT,
-                ALLOW_MIXED_TYPES__DEFAULT).man();
+                ALLOW_MIXED_TYPES__DEFAULT,
+                SNAPSHOT__DEFAULT,
+                OPTIMISTIC_READ__DEFAULT).man();
     }
 
     // ==================================================================== MAP
@@ -110,6 +144,27 @@ public final class FaktoryV8 implements Faktory {
         return kombine(name(name), new ExtMapSource(name(name), storage, SAFE_YAML.get()));
     }
 
+    @Override
+    @NotNull
+    @Contract(pure = true,
+            value = "_, _, _, _ -> new")
+    public KonfigurationManager map(@NotNull @NonNull final String name,
+                                    @NotNull @NonNull final Supplier<Map<String, ?>> storage,
+                                    @NotNull @NonNull final Fingerprinter<? super Map<String, ?>> fingerprinter,
+                                    final boolean nested) {
+        return kombine(name(name), new ExtMapSource(name(name), storage, nested, fingerprinter));
+    }
+
+    @Override
+    @NotNull
+    @Contract(pure = true,
+            value = "_, _, _ -> new")
+    public KonfigurationManager versionedMap(@NotNull @NonNull final String name,
+                                             @NotNull @NonNull final VersionedMap storage,
+                                             final boolean nested) {
+        return kombine(name(name), ExtMapSource.versioned(name(name), storage, nested));
+    }
+
     @Override
     @NotNull
     @Contract(value = "_, _ -> new",
@@ -138,6 +193,15 @@ public final class FaktoryV8 implements Faktory {
         return kombine(name(name), new ExtPreferencesSource(name(name), storage, deser));
     }
 
+    @Override
+    @NotNull
+    @Contract("_, _, _ -> new")
+    public KonfigurationManager preferencesSnapshot(@NotNull @NonNull final String name,
+                                                    @NotNull @NonNull final Preferences storage,
+                                                    @Nullable final Deserializer deser) {
+        return kombine(name(name), new ExtPreferencesSource(name(name), storage, deser, true));
+    }
+
 
     // ================================================================ JACKSON
 
@@ -159,6 +223,52 @@ public final class FaktoryV8 implements Faktory {
         return kombine(name(name), new ExtJacksonJsonSource(name(name), json, objectMapper));
     }
 
+    @Override
+    @NotNull
+    @Contract("_, _, _, _ -> new")
+    public KonfigurationManager jacksonJson(@NotNull @NonNull final String name,
+                                            @NotNull @NonNull final Supplier<String> json,
+                                            @NonNull @NotNull final Supplier<ObjectMapper> objectMapper,
+                                            @NonNull @NotNull final Fingerprinter<? super String> fingerprinter) {
+        return kombine(name(name), new ExtJacksonJsonSource(name(name), json, objectMapper, fingerprinter));
+    }
+
+    @Override
+    @NotNull
+    @Contract("_, _ -> new")
+    public KonfigurationManager jacksonJsonStream(@NotNull @NonNull final String name,
+                                                  @NotNull @NonNull final Supplier<? extends InputStream> json) {
+        final ObjectMapper mapper = ExtJacksonJsonSource.defaultJacksonObjectMapper();
+        return this.jacksonJsonStream(name(name), json, () -> mapper);
+    }
+
+    @Override
+    @NotNull
+    @Contract("_, _, _ -> new")
+    public KonfigurationManager jacksonJsonStream(@NotNull @NonNull final String name,
+                                                  @NotNull @NonNull final Supplier<? extends InputStream> json,
+                                                  @NonNull @NotNull final Supplier<ObjectMapper> objectMapper) {
+        return kombine(name(name), ExtJacksonJsonSource.stream(name(name), json, objectMapper));
+    }
+
+    @Override
+    @NotNull
+    @Contract("_, _ -> new")
+    public KonfigurationManager jsonFile(@NotNull @NonNull final String name,
+                                         @NotNull @NonNull final Path file) {
+        final ObjectMapper mapper = ExtJacksonJsonSource.defaultJacksonObjectMapper();
+        return this.jsonFile(name(name), file, () -> mapper);
+    }
+
+    @Override
+    @NotNull
+    @Contract("_, _, _ -> new")
+    public KonfigurationManager jsonFile(@NotNull @NonNull final String name,
+                                         @NotNull @NonNull final Path file,
+                                         @NonNull @NotNull final Supplier<ObjectMapper> objectMapper) {
+        return kombine(name(name), ExtJacksonJsonSource.file(name(name), file, objectMapper));
+    }
+
     // ============================================================= SNAKE YAML
 
     @Override
@@ -183,6 +293,19 @@ public final class FaktoryV8 implements Faktory {
         return kombine(name(name), new ExtYamlSource(name(name), yaml, objectMapper, SAFE_YAML.get()));
     }
 
+    @Override
+    @NotNull
+    @ApiStatus.Experimental
+    @Contract("_, _, _, _ -> new")
+    public KonfigurationManager snakeYaml(@NotNull @NonNull final String name,
+                                          @NotNull @NonNull final Supplier<String> yaml,
+                                          @NonNull @NotNull final Supplier<Yaml> objectMapper,
+                                          @NonNull @NotNull final Fingerprinter<? super String> fingerprinter) {
+        ExtYamlSource.ensureDep(name);
+        return kombine(name(name),
+                new ExtYamlSource(name(name), yaml, objectMapper, SAFE_YAML.get(), fingerprinter));
+    }
+
     @Override
     @NotNull
     @Contract("_, _, _ -> new")
@@ -193,4 +316,47 @@ public final class FaktoryV8 implements Faktory {
         return kombine(name(name), new ExtYamlSource(name(name), yaml, objectMapper, SAFE_YAML.get()));
     }
 
+    @Override
+    @NotNull
+    @ApiStatus.Experimental
+    @Contract("_, _ -> new")
+    public KonfigurationManager snakeYamlLazy(@NotNull @NonNull final String name,
+                                              @NotNull @NonNull final Supplier<String> yaml) {
+        ExtYamlSource.ensureDep(name);
+        return kombine(name(name),
+                ExtYamlSource.lazy(name(name), yaml, ExtYamlSource::getDefaultYamlSupplier, SAFE_YAML.get()));
+    }
+
+    @Override
+    @NotNull
+    @ApiStatus.Experimental
+    @Contract("_, _, _ -> new")
+    public KonfigurationManager snakeYamlLazy(@NotNull @NonNull final String name,
+                                              @NotNull @NonNull final Supplier<String> yaml,
+                                              @NonNull @NotNull final Supplier<Yaml> objectMapper) {
+        ExtYamlSource.ensureDep(name);
+        return kombine(name(name), ExtYamlSource.lazy(name(name), yaml, objectMapper, SAFE_YAML.get()));
+    }
+
+    @Override
+    @NotNull
+    @ApiStatus.Experimental
+    @Contract("_, _ -> new")
+    public KonfigurationManager yamlFile(@NotNull @NonNull final String name,
+                                         @NotNull @NonNull final Path file) {
+        ExtYamlSource.ensureDep(name);
+        return this.yamlFile(name(name), file, ExtYamlSource::getDefaultYamlSupplier);
+    }
+
+    @Override
+    @NotNull
+    @ApiStatus.Experimental
+    @Contract("_, _, _ -> new")
+    public KonfigurationManager yamlFile(@NotNull @NonNull final String name,
+                                         @NotNull @NonNull final Path file,
+                                         @NonNull @NotNull final Supplier<Yaml> objectMapper) {
+        ExtYamlSource.ensureDep(name);
+        return kombine(name(name), ExtYamlSource.file(name(name), file, objectMapper, SAFE_YAML.get()));
+    }
+
 }
@@ -43,6 +43,12 @@ final class Kombiner implements Konfiguration {
     final Kombiner_Observers observers;
     @NotNull
     final Kombiner_Values values;
+    /**
+     * Readers do not lock at all in snapshot mode, see {@link Kombiner_Generation}.
+     */
+    final boolean snapshot;
+    @NotNull
+    private volatile Kombiner_Generation generation;
     @NotNull
     @Getter
     @Accessors(fluent = true)
@@ -53,8 +59,11 @@ final class Kombiner implements Konfiguration {
              @NotNull @NonNull final Collection<KonfigurationManager> sources,
              @Nullable final Long lockWaitTimeMillis,
              final boolean fairLock,
-             final boolean allowMixedTypes) {
+             final boolean allowMixedTypes,
+             final boolean snapshot,
+             final boolean optimisticRead) {
         this.name = name;
+        this.snapshot = snapshot;
 
         // Find duplicate names.
         final List<@NotNull String> duplicates = sources
@@ -86,13 +95,13 @@ final class Kombiner implements Konfiguration {
         if (managers.isEmpty())
             throw new KfgIllegalArgumentException(name, "no source given");
 
-        this._lock = new Kombiner_Lock(name, lockWaitTimeMillis, fairLock);
+        this._lock = new Kombiner_Lock(name, lockWaitTimeMillis, fairLock, optimisticRead);
         this.observers = new Kombiner_Observers(this.name);
         this._man.set(new Kombiner_Manager(this));
         this.values = new Kombiner_Values(this, allowMixedTypes);
         this.sources = new Kombiner_Sources(this);
 
-        this.sources.replace(managers);
+        this.generation = Kombiner_Generation.first(managers);
     }
 
     // =========================================================================
@@ -120,10 +129,26 @@ final class Kombiner implements Konfiguration {
         return this._lock;
     }
 
+    @NotNull
+    Kombiner_Generation generation() {
+        return this.generation;
+    }
+
+    void generation(@NotNull @NonNull final Kombiner_Generation next) {
+        this.generation = next;
+    }
+
     <T> T r(@NonNull @NotNull final Supplier<T> func) {
         return this.lock().doReadLocked(func);
     }
 
+    /**
+     * Same as {@link #r(Supplier)}, but never optimistic.
+     */
+    <T> T rPessimistic(@NonNull @NotNull final Supplier<T> func) {
+        return this.lock().doReadPessimistic(func);
+    }
+
     <T> T w(@NonNull @NotNull final Supplier<T> func) {
         return this.lock().doWriteLocked(func);
     }
@@ -216,9 +241,23 @@ final class Kombiner implements Konfiguration {
     public boolean has(@NotNull @NonNull final Q<?> key) {
         if (key.key().isEmpty())
             throw new KfgIllegalArgumentException(this.name(), "provided type has no key");
-        return this.r(() -> this.values.has(key) ||
-                this.sources.vs().filter(x -> x.source() != this)
-                            .anyMatch(x -> x.source().has(key)));
+        if (this.snapshot)
+            return this.has0(key);
+        return this.r(() -> this.has0(key));
+    }
+
+    private boolean has0(@NotNull @NonNull final Q<?> key) {
+        final Kombiner_Generation gen = this.generation;
+        if (gen.has(key))
+            return true;
+        if (gen.isMissing(key))
+            return false;
+        final boolean has = gen.vs(key)
+                               .filter(x -> x.source() != this)
+                               .anyMatch(x -> x.source().has(key));
+        if (!has)
+            gen.missing(key);
+        return has;
     }
 
     @NotNull
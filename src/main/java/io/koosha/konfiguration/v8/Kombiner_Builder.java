@@ -26,8 +26,11 @@ final class Kombiner_Builder extends KonfigurationBuilderBase implements Konfigu
                                           final boolean fairLock,
                                           final boolean mixedTypes,
                                           @Nullable final Long lockWaitTime,
+                                          final boolean snapshot,
+                                          final boolean optimisticRead,
                                           @NotNull @NonNull final Collection<KonfigurationManager> sources) {
-        final Kombiner kombiner = new Kombiner(name, sources, lockWaitTime, fairLock, mixedTypes);
+        final Kombiner kombiner = new Kombiner(
+                name, sources, lockWaitTime, fairLock, mixedTypes, snapshot, optimisticRead);
         return kombiner.man();
     }
 
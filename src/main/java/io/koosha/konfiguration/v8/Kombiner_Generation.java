@@ -0,0 +1,144 @@
+package io.koosha.konfiguration.v8;
+
+import io.koosha.konfiguration.type.Q;
+import lombok.NonNull;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * One immutable generation of a {@link Kombiner}: its sources and the values
+ * resolved out of them.
+ *
+ * <p>Sources never change during the lifetime of a generation, so a value
+ * resolved once is valid for the whole generation and the cache only ever
+ * grows. Updates build the next generation off to the side and publish it
+ * through a single volatile reference in the kombiner.
+ */
+@ThreadSafe
+@ApiStatus.Internal
+final class Kombiner_Generation {
+
+    /**
+     * Stands in for null values, {@link ConcurrentHashMap} does not take them.
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * Upper bound on keys remembered as missing, so random keys read with a
+     * default can not grow it without limit.
+     */
+    static final int MAX_MISSING = 8192;
+
+    /**
+     * Only moves forward when a value observable through the kombiner actually
+     * changes, so anything stamped with this number stays valid as long as the
+     * number is the same.
+     */
+    final long number;
+
+    @NotNull
+    private final Map<String, CheatingMan> sources;
+
+    @NotNull
+    private final Kombiner_Index index;
+
+    @NotNull
+    private final Map<Q<?>, Object> cache;
+
+    /**
+     * Keys no source of this generation has. Not carried over to the next
+     * generation, any source may have the key after an update.
+     */
+    @NotNull
+    private final Set<Q<?>> missing = ConcurrentHashMap.newKeySet();
+
+    private Kombiner_Generation(final long number,
+                                @NotNull @NonNull final Map<String, CheatingMan> sources,
+                                @NotNull @NonNull final Kombiner_Index index,
+                                @NotNull @NonNull final Map<Q<?>, ?> cache) {
+        this.number = number;
+        this.sources = Collections.unmodifiableMap(new LinkedHashMap<>(sources));
+        this.index = index;
+        this.cache = new ConcurrentHashMap<>(cache.size());
+        cache.forEach(this::put);
+    }
+
+    @NotNull
+    @Contract(pure = true,
+            value = "_ -> new")
+    static Kombiner_Generation first(@NotNull @NonNull final Map<String, CheatingMan> sources) {
+        return new Kombiner_Generation(
+                0, sources, new Kombiner_Index(sources.values()), Collections.emptyMap());
+    }
+
+    @NotNull
+    @Contract(pure = true,
+            value = "_, _, _, _ -> new")
+    Kombiner_Generation next(@NotNull @NonNull final Map<String, CheatingMan> sources,
+                             @NotNull @NonNull final Kombiner_Index index,
+                             @NotNull @NonNull final Map<Q<?>, ?> cache,
+                             final boolean changed) {
+        return new Kombiner_Generation(changed ? this.number + 1 : this.number, sources, index, cache);
+    }
+
+    @NotNull
+    @Contract(pure = true)
+    Stream<CheatingMan> vs() {
+        return this.sources.values().stream();
+    }
+
+    /**
+     * Sources which may hold the given key, in priority order.
+     */
+    @NotNull
+    @Contract(pure = true)
+    Stream<CheatingMan> vs(@NotNull @NonNull final Q<?> q) {
+        return this.index.of(q.key()).stream();
+    }
+
+    @NotNull
+    @Contract(pure = true,
+            value = "-> new")
+    Map<String, CheatingMan> sources() {
+        return new LinkedHashMap<>(this.sources);
+    }
+
+    @Contract(pure = true)
+    boolean has(@NotNull @NonNull final Q<?> q) {
+        return this.cache.containsKey(q);
+    }
+
+    @Nullable
+    @Contract(pure = true)
+    Object get(@NotNull @NonNull final Q<?> q) {
+        final Object v = this.cache.get(q);
+        return v == NULL ? null : v;
+    }
+
+    @Contract(pure = true)
+    boolean isMissing(@NotNull @NonNull final Q<?> q) {
+        return this.missing.contains(q);
+    }
+
+    void missing(@NotNull @NonNull final Q<?> q) {
+        // Racy on the bound, off by a few is fine.
+        if (this.missing.size() < MAX_MISSING)
+            this.missing.add(q);
+    }
+
+    void put(@NotNull @NonNull final Q<?> q,
+             @Nullable final Object value) {
+        this.cache.putIfAbsent(q, value == null ? NULL : value);
+    }
+
+}
@@ -0,0 +1,77 @@
+package io.koosha.konfiguration.v8;
+
+import io.koosha.konfiguration.Source;
+import io.koosha.konfiguration.base.EnumerableSource;
+import lombok.NonNull;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Which sources of a generation may hold a key, in priority order.
+ *
+ * <p>Sources implementing {@link EnumerableSource} are only listed for the
+ * keys they enumerate, the rest (blind sources) are listed for every key, so
+ * for keys no enumerable source knows of, only blind sources are asked.
+ */
+@Immutable
+@ThreadSafe
+@ApiStatus.Internal
+final class Kombiner_Index {
+
+    @NotNull
+    private final Map<String, List<CheatingMan>> index;
+
+    @NotNull
+    private final List<CheatingMan> blind;
+
+    Kombiner_Index(@NotNull @NonNull final Collection<CheatingMan> sources) {
+        // Null for blind sources, each source is asked for its keys only once.
+        final List<Set<String>> keysOf = new ArrayList<>(sources.size());
+        final Set<String> keys = new HashSet<>();
+        final List<CheatingMan> blind = new ArrayList<>();
+        for (final CheatingMan man : sources) {
+            final Source source = man.source();
+            if (source instanceof EnumerableSource) {
+                final Set<String> sourceKeys = ((EnumerableSource) source).keys();
+                keysOf.add(sourceKeys);
+                keys.addAll(sourceKeys);
+            }
+            else {
+                keysOf.add(null);
+                blind.add(man);
+            }
+        }
+
+        final Map<String, List<CheatingMan>> index = new HashMap<>(keys.size() * 2);
+        for (final String key : keys) {
+            final List<CheatingMan> owners = new ArrayList<>(2);
+            int i = 0;
+            for (final CheatingMan man : sources) {
+                final Set<String> sourceKeys = keysOf.get(i++);
+                if (sourceKeys == null || sourceKeys.contains(key))
+                    owners.add(man);
+            }
+            index.put(key, unmodifiableList(owners));
+        }
+
+        this.index = index;
+        this.blind = unmodifiableList(blind);
+    }
+
+    /**
+     * Sources which may hold the key, in priority order.
+     */
+    @NotNull
+    @Contract(pure = true)
+    List<CheatingMan> of(@NotNull @NonNull final String key) {
+        return this.index.getOrDefault(key, this.blind);
+    }
+
+}
@@ -5,10 +5,10 @@ import io.koosha.konfiguration.K;
 import io.koosha.konfiguration.KeyObserver;
 import io.koosha.konfiguration.error.KfgMissingKeyException;
 import io.koosha.konfiguration.type.Q;
-import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.experimental.Accessors;
 import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.ApiStatus;
@@ -18,7 +18,7 @@ import org.jetbrains.annotations.Nullable;
 
 import static java.lang.String.format;
 
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Accessors(fluent = true)
 @EqualsAndHashCode
 @ThreadSafe
@@ -34,11 +34,26 @@ final class Kombiner_K<U> implements K<U> {
     @Getter
     private final Q<U> type;
 
+    /**
+     * Value resolved last time, stamped with the generation it was resolved
+     * in.
+     */
+    @Nullable
+    @EqualsAndHashCode.Exclude
+    private volatile Memo<U> memo;
+
 
     @Override
     @Nullable
     public U v() {
-        return this.origin.values.v(this.type, null, true);
+        final long generation = this.origin.generation().number;
+        final Memo<U> memo = this.memo;
+        if (memo != null && memo.generation == generation)
+            return memo.value;
+
+        final U v = this.origin.values.v(this.type, null, true);
+        this.memo = new Memo<>(generation, v);
+        return v;
     }
 
     @NotNull
@@ -94,4 +109,14 @@ final class Kombiner_K<U> implements K<U> {
         }
     }
 
+    @RequiredArgsConstructor
+    private static final class Memo<U> {
+
+        private final long generation;
+
+        @Nullable
+        private final U value;
+
+    }
+
 }
@@ -11,10 +11,23 @@ import org.jetbrains.annotations.Nullable;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Supplier;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Read / write lock of a {@link Kombiner}.
+ *
+ * <p>In optimistic mode readers go through a {@link StampedLock}: they first
+ * read without locking and validate the read afterward, falling back to its
+ * read lock only if a writer got in meanwhile. The function read must then
+ * tolerate running twice, and running concurrently with a writer, any result
+ * (or exception) of such a run is discarded. Writers still take the write
+ * lock of the (possibly fair) read write lock first, so they are ordered as
+ * before, and then the write lock of the stamped lock. Hence taking the read
+ * lock of the former keeps writers out in either mode.
+ */
 @ThreadSafe
 @ApiStatus.Internal
 final class Kombiner_Lock {
@@ -29,14 +42,22 @@ final class Kombiner_Lock {
     @NotNull
     private final ReadWriteLock LOCK;
 
+    /**
+     * Set only in optimistic mode.
+     */
+    @Nullable
+    private final StampedLock stamped;
+
     Kombiner_Lock(@NotNull @NonNull final String name,
                   @Nullable final Long lockWaitTimeMillis,
-                  final boolean fair) {
+                  final boolean fair,
+                  final boolean optimistic) {
         if (lockWaitTimeMillis != null && lockWaitTimeMillis < 0)
             throw new KfgIllegalStateException(name, "wait time must be gte 0: " + lockWaitTimeMillis);
         this.name = name;
         this.lockWaitTimeMillis = lockWaitTimeMillis;
         this.LOCK = new ReentrantReadWriteLock(fair);
+        this.stamped = optimistic ? new StampedLock() : null;
     }
 
     @SuppressWarnings("LockAcquiredButNotSafelyReleased")
@@ -58,7 +79,40 @@ final class Kombiner_Lock {
             lock.unlock();
     }
 
+    /**
+     * Same as {@link #acquire(Lock)}, on the stamped lock.
+     *
+     * @return stamp of the acquired lock.
+     */
+    private long acquire(@NonNull @NotNull final StampedLock lock,
+                         final boolean write) {
+        if (this.lockWaitTimeMillis == null)
+            return write ? lock.writeLock() : lock.readLock();
+        final long stamp;
+        try {
+            stamp = write
+                    ? lock.tryWriteLock(this.lockWaitTimeMillis, MILLISECONDS)
+                    : lock.tryReadLock(this.lockWaitTimeMillis, MILLISECONDS);
+        }
+        catch (final InterruptedException e) {
+            throw new KfgConcurrencyException(this.name, "could not acquire lock", e);
+        }
+        if (stamp == 0L)
+            throw new KfgConcurrencyException(this.name, "could not acquire lock");
+        return stamp;
+    }
+
     <T> T doReadLocked(@NonNull @NotNull final Supplier<T> func) {
+        return this.stamped != null
+               ? this.doReadOptimistic(this.stamped, func)
+               : this.doReadPessimistic(func);
+    }
+
+    /**
+     * Takes the read lock even in optimistic mode, for reads too costly to
+     * run twice or not free of side effects.
+     */
+    <T> T doReadPessimistic(@NonNull @NotNull final Supplier<T> func) {
         Lock lock = null;
         try {
             lock = this.LOCK.readLock();
@@ -70,12 +124,50 @@ final class Kombiner_Lock {
         }
     }
 
+    private <T> T doReadOptimistic(@NonNull @NotNull final StampedLock lock,
+                                   @NonNull @NotNull final Supplier<T> func) {
+        final long optimistic = lock.tryOptimisticRead();
+        if (optimistic != 0L) {
+            final T result;
+            try {
+                result = func.get();
+            }
+            catch (final RuntimeException e) {
+                if (lock.validate(optimistic))
+                    throw e;
+                return this.doReadStamped(lock, func);
+            }
+            if (lock.validate(optimistic))
+                return result;
+        }
+        return this.doReadStamped(lock, func);
+    }
+
+    private <T> T doReadStamped(@NonNull @NotNull final StampedLock lock,
+                                @NonNull @NotNull final Supplier<T> func) {
+        final long stamp = this.acquire(lock, false);
+        try {
+            return func.get();
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
     <T> T doWriteLocked(@NonNull @NotNull final Supplier<T> func) {
         Lock lock = null;
         try {
-            lock = this.LOCK.readLock();
+            lock = this.LOCK.writeLock();
             this.acquire(lock);
-            return func.get();
+            if (this.stamped == null)
+                return func.get();
+            final long stamp = this.acquire(this.stamped, true);
+            try {
+                return func.get();
+            }
+            finally {
+                this.stamped.unlockWrite(stamp);
+            }
         }
         finally {
             release(lock);
@@ -3,12 +3,14 @@ package io.koosha.konfiguration.v8;
 import io.koosha.konfiguration.K;
 import io.koosha.konfiguration.KonfigurationManager;
 import io.koosha.konfiguration.Source;
+import io.koosha.konfiguration.base.DiffableSource;
 import io.koosha.konfiguration.type.Q;
 import lombok.NonNull;
 import net.jcip.annotations.NotThreadSafe;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -25,6 +27,12 @@ final class Kombiner_Manager implements KonfigurationManager {
     final Kombiner origin;
     private final AtomicBoolean consumed = new AtomicBoolean(false);
 
+    /**
+     * Updates are run one at a time, each building on the generation the
+     * previous one installed. Readers never take it.
+     */
+    private final Object updateLock = new Object();
+
     Kombiner_Manager(@NotNull @NonNull final Kombiner kombiner) {
         this.origin = kombiner;
     }
@@ -57,19 +65,42 @@ final class Kombiner_Manager implements KonfigurationManager {
         return this.origin.name();
     }
 
+    /**
+     * Never read optimistically, sources may fetch their payload to tell if
+     * they have an update, which must not be done twice.
+     */
     @Override
     public boolean hasUpdate() {
         if (!this.consumed.get())
             throw new IllegalStateException("getAndSetToNull() not called yet");
-        return this.origin.r(this::hasUpdate0);
+        return this.origin.snapshot
+               ? this.hasUpdate0()
+               : this.origin.rPessimistic(this::hasUpdate0);
     }
 
+    /**
+     * Builds the next generation off to the side, without holding the
+     * kombiner's lock, and then swaps it in.
+     *
+     * <p>Thread safe, see {@link #update0(Set)}.
+     */
     @NotNull
     @Override
     public Collection<Runnable> update() {
         if (!this.consumed.get())
             throw new IllegalStateException("getAndSetToNull() not called yet");
-        return this.origin.r(this::update0);
+        return this.update0(null);
+    }
+
+    /**
+     * Same as {@link #update()}, but only the named sources are asked for
+     * their update, the rest are taken as unchanged.
+     */
+    @NotNull
+    Collection<Runnable> update(@NotNull @NonNull final Set<String> dirty) {
+        if (!this.consumed.get())
+            throw new IllegalStateException("getAndSetToNull() not called yet");
+        return this.update0(dirty);
     }
 
     private boolean hasUpdate0() {
@@ -79,26 +110,72 @@ final class Kombiner_Manager implements KonfigurationManager {
                 .anyMatch(KonfigurationManager::hasUpdate);
     }
 
-    private Collection<Runnable> update0() {
-        if (!this.hasUpdate0())
-            return emptyList();
+    /**
+     * Updates may come from the user, a watcher and a refresher at once, so
+     * they are run one at a time: two overlapping updates would otherwise
+     * both build on the same generation, the last one installed dropping the
+     * other's changes, and its observers told of the wrong keys.
+     */
+    private Collection<Runnable> update0(@Nullable final Set<String> dirty) {
+        synchronized (this.updateLock) {
+            return this.updateLocked(dirty);
+        }
+    }
 
-        final Map<String, CheatingMan> newSources = this.origin.sources.copy();
+    /**
+     * Each source is asked for its update only once, a source which has none
+     * hands back itself. Asking {@link #hasUpdate0()} first would make every
+     * source fetch its payload twice.
+     *
+     * <p>If all the updated sources can tell what changed in them (see
+     * {@link DiffableSource}) only the keys affected are re-resolved, the rest
+     * are carried over to the next generation as is.
+     */
+    private Collection<Runnable> updateLocked(@Nullable final Set<String> dirty) {
+        final Kombiner_Generation oldGen = this.origin.generation();
+        final Map<String, CheatingMan> newSources = oldGen.sources();
         final Collection<Runnable> updateTasks = new ArrayList<>();
 
-        newSources.entrySet().forEach(x -> {
+        boolean anyUpdate = false;
+        // Null once any of the changes can not be told, everything is then
+        // re-resolved.
+        Set<String> changedKeys = new HashSet<>();
+        for (final Map.Entry<String, CheatingMan> x : newSources.entrySet()) {
+            if (dirty != null && !dirty.contains(x.getKey()))
+                continue;
             final CheatingMan cheat = x.getValue();
+            if (cheat.man() != null && cheat.man().hasUpdate()) {
+                anyUpdate = true;
+                changedKeys = null;
+            }
             updateTasks.addAll(
                     cheat.update().stream()
                          .map(Kombiner_Manager::wrap).collect(toList()));
-            x.setValue(cheat.updated());
-        });
+            final CheatingMan updated = cheat.updated();
+            if (updated != cheat) {
+                anyUpdate = true;
+                changedKeys = diff(changedKeys, cheat.source(), updated.source());
+            }
+            x.setValue(updated);
+        }
+        if (!anyUpdate)
+            return emptyList();
+        final Set<String> changedParents = changedKeys == null ? null : parents(changedKeys);
+        final Set<String> changedKeys_ = changedKeys;
 
+        final Kombiner_Index index = new Kombiner_Index(newSources.values());
         final Collection<Q<?>> updated = new HashSet<>();
-        final Map<Q<?>, Object> newCache = this.origin.values.copy();
+        final Map<Q<?>, Object> newCache = new HashMap<>();
+        final int issued = this.origin.values.issuedKeys.size();
         this.origin.values.origForEach(q -> {
-            final Optional<Source> first = newSources
-                    .values()
+            if (changedKeys_ != null && !affected(q.key(), changedKeys_, changedParents)) {
+                if (oldGen.has(q))
+                    newCache.put(q, oldGen.get(q));
+                return;
+            }
+
+            final Optional<Source> first = index
+                    .of(q.key())
                     .stream()
                     .filter(x -> x.source().has(q))
                     .map(CheatingMan::source)
@@ -107,11 +184,10 @@ final class Kombiner_Manager implements KonfigurationManager {
             @SuppressWarnings({"unchecked", "rawtypes"})
             final Object newV = first.map(x -> x.custom(q))
                                      .orElse(K.null_((Q) q)).v();
-            final Object oldV = this.origin.has(q)
-                                ? this.origin.values.v_(q, null, true)
-                                : null;
+            final boolean oldExists = oldGen.has(q);
+            final Object oldV = oldGen.get(q);
 
-            if (this.origin.values.has(q) != first.isPresent()
+            if (oldExists != first.isPresent()
                     || !Objects.equals(newV, oldV))
                 updated.add(q);
 
@@ -123,11 +199,56 @@ final class Kombiner_Manager implements KonfigurationManager {
         for (final Q<?> q : updated)
             updateTasks.addAll(this.origin.observers.get(q));
 
+        // Keys issued concurrently were not compared, so can't tell if they
+        // changed.
+        final boolean changed = !updated.isEmpty()
+                || issued != this.origin.values.issuedKeys.size();
+        final Kombiner_Generation newGen = oldGen.next(newSources, index, newCache, changed);
         return this.origin.w(() -> {
-            this.origin.sources.replace(newSources);
-            this.origin.values.replace(newCache);
+            this.origin.generation(newGen);
             return updateTasks;
         });
     }
 
+    @Nullable
+    private static Set<String> diff(@Nullable final Set<String> changedKeys,
+                                    @NotNull @NonNull final Source old,
+                                    @NotNull @NonNull final Source updated) {
+        if (changedKeys == null || !(updated instanceof DiffableSource))
+            return null;
+        final Set<String> diff = ((DiffableSource) updated).diff(old);
+        if (diff == null)
+            return null;
+        changedKeys.addAll(diff);
+        return changedKeys;
+    }
+
+    /**
+     * Every strict dotted prefix of the given keys.
+     */
+    @NotNull
+    private static Set<String> parents(@NotNull @NonNull final Set<String> keys) {
+        final Set<String> parents = new HashSet<>();
+        for (final String key : keys)
+            for (int i = key.lastIndexOf('.'); i > 0; i = key.lastIndexOf('.', i - 1))
+                if (!parents.add(key.substring(0, i)))
+                    break;
+        return parents;
+    }
+
+    /**
+     * A key is affected by a change to itself, to anything nested under it,
+     * or to anything it is nested under.
+     */
+    private static boolean affected(@NotNull @NonNull final String key,
+                                    @NotNull @NonNull final Set<String> changed,
+                                    @NotNull @NonNull final Set<String> changedParents) {
+        if (changed.contains(key) || changedParents.contains(key))
+            return true;
+        for (int i = key.lastIndexOf('.'); i > 0; i = key.lastIndexOf('.', i - 1))
+            if (changed.contains(key.substring(0, i)))
+                return true;
+        return false;
+    }
+
 }
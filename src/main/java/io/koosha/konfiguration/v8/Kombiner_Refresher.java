@@ -0,0 +1,190 @@
+package io.koosha.konfiguration.v8;
+
+import io.koosha.konfiguration.KonfigurationWatcher;
+import io.koosha.konfiguration.error.KfgIllegalArgumentException;
+import lombok.NonNull;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Polls a kombiner for updates on a schedule, all refreshers sharing a single
+ * daemon thread.
+ *
+ * <p>Each poll is scheduled after the previous one is done, so polls of the
+ * same kombiner never overlap:
+ * <ul>
+ * <li>Intervals are spread by a random jitter, so that many kombiners started
+ * together do not poll their sources together.</li>
+ * <li>Once a poll sees an update, the kombiner is updated only after a quiet
+ * period, coalescing the changes made in the meanwhile into a single update
+ * and a single round of observer notifications.</li>
+ * <li>A failing poll or update (such as a half written file not parsing) is
+ * retried with an exponential backoff, the failure is handed to the uncaught
+ * exception handler of the thread. The backoff is over once a poll or an
+ * update succeeds. Whatever is thrown, the next poll is scheduled.</li>
+ * </ul>
+ *
+ * <p>Observers are run on a second shared thread, so that a slow observer
+ * never holds back polling, and each observer is guarded on its own: one
+ * throwing does not skip the rest, nor count as a failed update.
+ */
+@ThreadSafe
+@ApiStatus.Internal
+final class Kombiner_Refresher implements KonfigurationWatcher {
+
+    private static final class Holder {
+        private static final ScheduledExecutorService EXECUTOR = executor();
+
+        private static final ExecutorService OBSERVERS = Executors.newSingleThreadExecutor(
+                r -> daemon(r, "konfiguration-refresher-observers"));
+
+        private static ScheduledExecutorService executor() {
+            final ScheduledThreadPoolExecutor e = new ScheduledThreadPoolExecutor(
+                    1, r -> daemon(r, "konfiguration-refresher"));
+            e.setRemoveOnCancelPolicy(true);
+            return e;
+        }
+
+        private static Thread daemon(@NotNull @NonNull final Runnable r,
+                                     @NotNull @NonNull final String name) {
+            final Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    @NotNull
+    private final Kombiner_Manager man;
+
+    private final long intervalMillis;
+    private final double jitter;
+    private final long quietMillis;
+    private final long maxBackoffMillis;
+
+    /**
+     * Only touched from the shared thread.
+     */
+    private int failures = 0;
+
+    @Nullable
+    private ScheduledFuture<?> next;
+
+    private boolean closed = false;
+
+    Kombiner_Refresher(@NotNull @NonNull final Kombiner_Manager man,
+                       final long intervalMillis,
+                       final double jitter,
+                       final long quietMillis,
+                       final long maxBackoffMillis) {
+        if (intervalMillis <= 0)
+            throw new KfgIllegalArgumentException(man.name(), "interval must be positive: " + intervalMillis);
+        if (jitter < 0 || jitter >= 1)
+            throw new KfgIllegalArgumentException(man.name(), "jitter must be in [0, 1): " + jitter);
+        if (quietMillis < 0)
+            throw new KfgIllegalArgumentException(man.name(), "negative quiet period: " + quietMillis);
+        if (maxBackoffMillis < intervalMillis)
+            throw new KfgIllegalArgumentException(man.name(),
+                    "max backoff less than interval: " + maxBackoffMillis);
+
+        this.man = man;
+        this.intervalMillis = intervalMillis;
+        this.jitter = jitter;
+        this.quietMillis = quietMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+
+        this.schedule(this::poll, this.delay());
+    }
+
+    private long delay() {
+        final long base = this.failures == 0
+                          ? this.intervalMillis
+                          : Math.min(this.maxBackoffMillis,
+                                  this.intervalMillis << Math.min(this.failures, 30));
+        final double spread = base * this.jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return Math.max(1, base + (long) spread);
+    }
+
+    private synchronized void schedule(@NotNull @NonNull final Runnable task,
+                                       final long delayMillis) {
+        if (!this.closed)
+            this.next = Holder.EXECUTOR.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll() {
+        boolean hasUpdate = false;
+        try {
+            hasUpdate = this.man.hasUpdate();
+            // A source failing once (such as a network blip) must not keep
+            // polling backed off until the next actual change.
+            this.failures = 0;
+        }
+        catch (final Throwable e) {
+            this.failures++;
+            report(e);
+        }
+        finally {
+            if (hasUpdate)
+                this.schedule(this::update, this.quietMillis);
+            else
+                this.schedule(this::poll, this.delay());
+        }
+    }
+
+    private void update() {
+        Collection<Runnable> observers = emptyList();
+        try {
+            observers = this.man.update();
+            this.failures = 0;
+        }
+        catch (final Throwable e) {
+            this.failures++;
+            report(e);
+        }
+        finally {
+            this.schedule(this::poll, this.delay());
+        }
+
+        final Collection<Runnable> notify = observers;
+        if (!notify.isEmpty())
+            Holder.OBSERVERS.execute(() -> {
+                for (final Runnable observer : notify)
+                    try {
+                        observer.run();
+                    }
+                    catch (final Throwable e) {
+                        report(e);
+                    }
+            });
+    }
+
+    private static void report(@NotNull @NonNull final Throwable e) {
+        final Thread thread = Thread.currentThread();
+        try {
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+        catch (final Throwable ignored) {
+            // Nowhere left to report to.
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        if (this.next != null)
+            this.next.cancel(false);
+    }
+
+}
@@ -5,28 +5,27 @@ import io.koosha.konfiguration.Source;
 import io.koosha.konfiguration.error.KfgMissingKeyException;
 import io.koosha.konfiguration.error.KfgTypeException;
 import io.koosha.konfiguration.type.Q;
-import lombok.AllArgsConstructor;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
 import lombok.experimental.Accessors;
-import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Accessors(fluent = true)
-@NotThreadSafe
+@ThreadSafe
 @ApiStatus.Internal
 final class Kombiner_Values {
 
     @NotNull
-    final Set<Q<?>> issuedKeys = new HashSet<>();
-    @NotNull
-    final Map<Q<?>, ? super Object> cache = new HashMap<>();
+    final Set<Q<?>> issuedKeys = ConcurrentHashMap.newKeySet();
     @NonNull
     @NotNull
     private final Kombiner origin;
@@ -37,71 +36,71 @@ final class Kombiner_Values {
         return new Kombiner_K<>(this.origin, type);
     }
 
-    @Contract(mutates = "this")
     @Nullable
     @SuppressWarnings("unchecked")
     <U> U v(@NotNull @NonNull final Q<?> type,
             @Nullable final U def,
             final boolean mustExist) {
-        return this.origin.r(() -> {
-            if (this.cache.containsKey(type))
-                return ((U) this.cache.get(type));
-            return this.origin.w(() -> ((U) this.v_(type, def, mustExist)));
-        });
+        return this.origin.snapshot
+               ? (U) this.v_(this.origin.generation(), type, def, mustExist)
+               : this.origin.r(() -> (U) this.v_(this.origin.generation(), type, def, mustExist));
     }
 
-    Object v_(@NotNull final Q<?> key,
+    /**
+     * Resolve the value of the given key in the given generation, and cache it
+     * in that generation.
+     *
+     * <p>Does not lock, the generation is immutable as far as its sources are
+     * concerned.
+     */
+    Object v_(@NotNull @NonNull final Kombiner_Generation generation,
+              @NotNull @NonNull final Q<?> key,
               final Object def,
               final boolean mustExist) {
-        final Optional<Source> first = this
-                .origin
-                .sources
-                .vs()
-                .map(CheatingMan::source)
-                .filter(source -> source.has(key))
-                .findFirst();
+        if (generation.has(key))
+            return generation.get(key);
+
+        final Optional<Source> first = generation.isMissing(key)
+                                       ? Optional.empty()
+                                       : generation.vs(key)
+                                                   .map(CheatingMan::source)
+                                                   .filter(source -> source.has(key))
+                                                   .findFirst();
+        if (!first.isPresent())
+            generation.missing(key);
         if (!first.isPresent() && mustExist)
             throw new KfgMissingKeyException(this.origin.name(), key);
         this.issue(key);
         if (!first.isPresent())
             return def;
         final Object value = first.get().custom(key).v();
-        this.cache.put(key, value);
+        generation.put(key, value);
         return value;
     }
 
     boolean has(@NonNull @NotNull final Q<?> t) {
-        return this.cache.containsKey(t);
+        return this.origin.generation().has(t);
     }
 
     private void issue(@NotNull @NonNull final Q<?> q) {
         if (this.issuedKeys.contains(q))
             return;
 
-        if (!this.allowMixedTypes) {
-            final Optional<Q<?>> duplicate = this.issuedKeys
-                    .stream()
-                    .filter(x -> Objects.equals(x.key(), q.key()))
-                    .findFirst();
-            if (duplicate.isPresent())
-                throw new KfgTypeException(
-                        this.origin.name(), q, duplicate.get(),
-                        "mixed types is not allowed");
+        synchronized (this.issuedKeys) {
+            if (!this.allowMixedTypes) {
+                final Optional<Q<?>> duplicate = this.issuedKeys
+                        .stream()
+                        .filter(x -> Objects.equals(x.key(), q.key()))
+                        .filter(x -> !Objects.equals(x, q))
+                        .findFirst();
+                if (duplicate.isPresent())
+                    throw new KfgTypeException(
+                            this.origin.name(), q, duplicate.get(),
+                            "mixed types is not allowed");
+            }
+
+            this.issuedKeys.add(q);
         }
-
-        this.issuedKeys.add(q);
-    }
-
-
-    @NotNull
-    Map<Q<?>, Object> copy() {
-        return new HashMap<>(this.cache);
-    }
-
-    Kombiner_Values replace(@NotNull @NonNull final Map<? extends Q<?>, Object> copy) {
-        this.cache.clear();
-        this.cache.putAll(copy);
-        return this;
     }
 
     void origForEach(final Consumer<? super Q<?>> action) {
@@ -0,0 +1,170 @@
+package io.koosha.konfiguration.v8;
+
+import io.koosha.konfiguration.KonfigurationWatcher;
+import io.koosha.konfiguration.base.WatchableSource;
+import io.koosha.konfiguration.error.KfgSourceException;
+import lombok.NonNull;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Updates a kombiner from its own thread whenever the file of one of its
+ * {@link WatchableSource}s is touched, asking only the sources owning the
+ * touched files for their update.
+ *
+ * <p>Parent directories are watched rather than the files themselves, so that
+ * files replaced by a rename are still seen. An update waits for the files
+ * to go quiet for {@link #QUIET_MILLIS}, so that a single save (which editors
+ * often do in several writes, or a write and a rename) is handled in a single
+ * update, though never longer than {@link #MAX_DELAY_MILLIS}. Sources not
+ * backed by files are never updated by the watcher, they still have to be
+ * polled.
+ *
+ * <p>The watcher thread calls {@link Kombiner_Manager#update(Set)}, which is
+ * run one at a time with any other update of the kombiner. Observers are run
+ * on the watcher thread.
+ */
+@ThreadSafe
+@ApiStatus.Internal
+final class Kombiner_Watcher implements KonfigurationWatcher {
+
+    /**
+     * How long no event must arrive, before the events so far are handled.
+     */
+    static final long QUIET_MILLIS = 100;
+
+    /**
+     * Upper bound on how long the first event is held back, so that a file
+     * written to non-stop still gets updated.
+     */
+    static final long MAX_DELAY_MILLIS = 1_000;
+
+    @NotNull
+    private final Kombiner_Manager man;
+
+    /**
+     * Null if there is nothing to watch.
+     */
+    @Nullable
+    private final WatchService watchService;
+
+    /**
+     * Watched directory -> file name -> names of the sources reading it.
+     */
+    @NotNull
+    private final Map<Path, Map<Path, Set<String>>> watched = new HashMap<>();
+
+    @NotNull
+    private final Set<String> all = new HashSet<>();
+
+    @NotNull
+    private final Thread thread;
+
+    Kombiner_Watcher(@NotNull @NonNull final Kombiner_Manager man) {
+        this.man = man;
+
+        man.origin.generation().vs().forEach(cheat -> {
+            if (!(cheat.source() instanceof WatchableSource))
+                return;
+            for (final Path file : ((WatchableSource) cheat.source()).files()) {
+                final Path abs = file.toAbsolutePath();
+                this.watched.computeIfAbsent(abs.getParent(), dir -> new HashMap<>())
+                            .computeIfAbsent(abs.getFileName(), f -> new HashSet<>())
+                            .add(cheat.name());
+                this.all.add(cheat.name());
+            }
+        });
+
+        try {
+            this.watchService = this.watched.isEmpty()
+                                ? null
+                                : this.watched.keySet().iterator().next().getFileSystem().newWatchService();
+            for (final Path dir : this.watched.keySet())
+                dir.register(this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        }
+        catch (final IOException e) {
+            this.close0();
+            throw new KfgSourceException(man.name(), "could not watch files", e);
+        }
+
+        this.thread = new Thread(this::run, "konfiguration-watcher-" + man.name());
+        this.thread.setDaemon(true);
+        if (this.watchService != null)
+            this.thread.start();
+    }
+
+    private void run() {
+        while (true) {
+            final Set<String> dirty = new HashSet<>();
+            try {
+                WatchKey key = requireNonNull(this.watchService).take();
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MILLIS);
+                while (key != null) {
+                    this.dirty(key, dirty);
+                    key = System.nanoTime() < deadline
+                          ? this.watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)
+                          : this.watchService.poll();
+                }
+            }
+            catch (final InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            if (dirty.isEmpty())
+                continue;
+            try {
+                this.man.update(dirty).forEach(Runnable::run);
+            }
+            catch (final RuntimeException e) {
+                // A bad edit must not stop watching, the next edit may fix it.
+                this.thread.getUncaughtExceptionHandler().uncaughtException(this.thread, e);
+            }
+        }
+    }
+
+    private void dirty(@NotNull @NonNull final WatchKey key,
+                       @NotNull @NonNull final Set<String> dirty) {
+        final Map<Path, Set<String>> files = this.watched.get((Path) key.watchable());
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                dirty.addAll(this.all);
+                continue;
+            }
+            final Set<String> owners = files == null ? null : files.get((Path) event.context());
+            if (owners != null)
+                dirty.addAll(owners);
+        }
+        key.reset();
+    }
+
+    @Override
+    public void close() {
+        this.close0();
+        this.thread.interrupt();
+    }
+
+    private void close0() {
+        try {
+            if (this.watchService != null)
+                this.watchService.close();
+        }
+        catch (final IOException e) {
+            throw new KfgSourceException(this.man.name(), "could not stop watching files", e);
+        }
+    }
+
+}
@@ -1,13 +1,26 @@
 package io.koosha.konfiguration;
 
 import io.koosha.konfiguration.error.KfgMissingKeyException;
+import io.koosha.konfiguration.type.Q;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.beans.ConstructorProperties;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static org.testng.Assert.*;
 
@@ -43,6 +56,18 @@ public final class KonfigurationKombinerTest {
         assertEquals(k.int_("xxx").v(), (Integer) 99);
     }
 
+    @Test
+    public void testHeldKSeesUpdate() throws Exception {
+        final K<Integer> held = k.int_("xxx");
+        assertEquals(held.v(), (Integer) 12);
+        assertEquals(held.v(), (Integer) 12);
+
+        flag.set(!flag.get());
+        man.updateNow();
+
+        assertEquals(held.v(), (Integer) 99);
+    }
+
     @Test(expectedExceptions = KfgMissingKeyException.class)
     public void testV3() throws Exception {
         //noinspection ResultOfMethodCallIgnored
@@ -76,6 +101,299 @@ public final class KonfigurationKombinerTest {
         k.long_("some bla bla bla").v();
     }
 
+    @Test
+    public void testSnapshotUpdate() throws Exception {
+        final KonfigurationManager snapshotMan = fac.builder()
+                                                    .add(fac.map("map-sup-snapshot", sup))
+                                                    .snapshot(true)
+                                                    .build();
+        final Konfiguration snapshot = snapshotMan.getAndSetToNull();
+
+        assertEquals(snapshot.int_("xxx").v(), (Integer) 12);
+        assertFalse(snapshotMan.hasUpdate());
+
+        final KeyObserver observer = key -> {};
+        snapshot.register(observer);
+
+        flag.set(!flag.get());
+        assertTrue(snapshotMan.hasUpdate());
+        assertEquals(snapshot.int_("xxx").v(), (Integer) 12);
+
+        assertFalse(snapshotMan.update().isEmpty());
+        assertEquals(snapshot.int_("xxx").v(), (Integer) 99);
+    }
+
+    /**
+     * Deserialized by jackson, running {@link #onRead} while being read.
+     */
+    public static final class Probe {
+
+        static volatile Runnable onRead = () -> {};
+
+        final int v;
+
+        @ConstructorProperties({"v"})
+        public Probe(final int v) {
+            this.v = v;
+            onRead.run();
+        }
+
+    }
+
+    @Test
+    public void testOptimisticReadUpdatedMeanwhile() throws Exception {
+        final AtomicBoolean second = new AtomicBoolean(false);
+        final KonfigurationManager optimisticMan = fac
+                .builder()
+                .add(fac.jacksonJson_(() -> second.get() ? "{ \"probe\": { \"v\": 2 } }"
+                                                         : "{ \"probe\": { \"v\": 1 } }"))
+                .optimisticRead(true)
+                .build();
+        final Konfiguration optimistic = optimisticMan.getAndSetToNull();
+
+        // The kombiner moves to the next generation in the middle of the
+        // optimistic read, which must then be discarded and read again.
+        final AtomicInteger reads = new AtomicInteger();
+        Probe.onRead = () -> {
+            if (reads.getAndIncrement() == 0) {
+                second.set(true);
+                optimisticMan.update();
+            }
+        };
+        try {
+            assertEquals(optimistic.custom("probe", Probe.class).v().v, 2);
+            assertEquals(reads.get(), 2);
+            assertEquals(optimistic.custom("probe", Probe.class).v().v, 2);
+        }
+        finally {
+            Probe.onRead = () -> {};
+        }
+    }
+
+    @Test
+    public void testMissingKeyAppearsAfterUpdate() throws Exception {
+        final Supplier<Map<String, ?>> appearing = () -> flag.get()
+                                                         ? singletonMap("xxx", (Object) 12)
+                                                         : singletonMap("yyy", (Object) 7);
+        final KonfigurationManager appearingMan = fac.kombine(fac.map("map-appearing", appearing));
+        final Konfiguration appearingK = appearingMan.getAndSetToNull();
+
+        assertEquals(appearingK.int_("yyy").v(3), (Integer) 3);
+        assertEquals(appearingK.int_("yyy").v(3), (Integer) 3);
+        assertFalse(appearingK.has(Q.int_("yyy")));
+
+        flag.set(!flag.get());
+        appearingMan.updateNow();
+
+        assertTrue(appearingK.has(Q.int_("yyy")));
+        assertEquals(appearingK.int_("yyy").v(3), (Integer) 7);
+    }
+
+    @Test
+    public void testFirstSourceHavingKeyWins() {
+        final Map<String, Object> second = new HashMap<>();
+        second.put("xxx", 1);
+        second.put("zzz", 2);
+        final Konfiguration layered = fac.kombine(
+                fac.map("map-first", sup),
+                fac.map("map-second", () -> second)
+        ).getAndSetToNull();
+
+        assertEquals(layered.int_("xxx").v(), (Integer) 12);
+        assertEquals(layered.int_("zzz").v(), (Integer) 2);
+    }
+
+    @Test
+    public void testUpdateFetchesOnce() throws Exception {
+        final AtomicInteger fetches = new AtomicInteger();
+        final KonfigurationManager countingMan = fac.kombine(fac.map("map-counting", () -> {
+            fetches.incrementAndGet();
+            return sup.get();
+        }));
+        final Konfiguration counting = countingMan.getAndSetToNull();
+        assertEquals(counting.int_("xxx").v(), (Integer) 12);
+
+        fetches.set(0);
+        countingMan.update();
+        assertEquals(fetches.get(), 1);
+
+        flag.set(!flag.get());
+        fetches.set(0);
+        countingMan.update();
+        assertEquals(fetches.get(), 1);
+        assertEquals(counting.int_("xxx").v(), (Integer) 99);
+    }
+
+    @Test
+    public void testUnchangedKeyCarriedOver() throws Exception {
+        final KonfigurationManager twoMan = fac.kombine(fac.map("map-two", () -> {
+            final Map<String, Object> map = new HashMap<>();
+            map.put("xxx", flag.get() ? 12 : 99);
+            map.put("list", new ArrayList<>(asList(1, 2, 3)));
+            return map;
+        }));
+        final Konfiguration two = twoMan.getAndSetToNull();
+        final List<Integer> list = two.list("list", Integer.class).v();
+        assertEquals(two.int_("xxx").v(), (Integer) 12);
+
+        flag.set(!flag.get());
+        twoMan.updateNow();
+
+        assertEquals(two.int_("xxx").v(), (Integer) 99);
+        assertSame(two.list("list", Integer.class).v(), list);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testWatchFile() throws Exception {
+        final Path dir = Files.createTempDirectory("konfig");
+        final Path file = dir.resolve("konfig.json");
+        Files.write(file, DummyCustom.JSON_SAMPLE_0.getBytes(StandardCharsets.UTF_8));
+        final KonfigurationManager fileMan = fac.kombine(fac.jsonFile("json-file", file));
+        final Konfiguration watched = fileMan.getAndSetToNull();
+        final KonfigurationWatcher watcher = fac.watch(fileMan);
+        try {
+            assertEquals(watched.int_("aInt").v(), (Integer) 12);
+
+            Files.write(file, DummyCustom.JSON_SAMPLE_1.getBytes(StandardCharsets.UTF_8));
+            while (watched.int_("aInt").v() != 99)
+                Thread.sleep(10);
+        }
+        finally {
+            watcher.close();
+            Files.delete(file);
+            Files.delete(dir);
+        }
+    }
+
+    @Test(timeOut = 30_000)
+    public void testWatchFileDebounced() throws Exception {
+        final Path dir = Files.createTempDirectory("konfig");
+        final Path file = dir.resolve("konfig.json");
+        Files.write(file, DummyCustom.JSON_SAMPLE_0.getBytes(StandardCharsets.UTF_8));
+        final KonfigurationManager fileMan = fac.kombine(fac.jsonFile("json-file", file));
+        final Konfiguration watched = fileMan.getAndSetToNull();
+        final List<Integer> seen = new ArrayList<>();
+        final CountDownLatch last = new CountDownLatch(1);
+        watched.int_("aInt").register(key -> {
+            final Integer v = watched.int_("aInt").v();
+            synchronized (seen) {
+                seen.add(v);
+            }
+            if (v == 5)
+                last.countDown();
+        });
+        final KonfigurationWatcher watcher = fac.watch(fileMan);
+        try {
+            // As an editor saving in several writes, each well within the
+            // quiet period, the intermediate values must not be loaded.
+            for (int i = 1; i <= 5; i++) {
+                Files.write(file, DummyCustom.JSON_SAMPLE_0.replace("\"aInt\": 12", "\"aInt\": " + i)
+                                                           .getBytes(StandardCharsets.UTF_8));
+                Thread.sleep(20);
+            }
+            assertTrue(last.await(10, TimeUnit.SECONDS));
+            synchronized (seen) {
+                assertEquals(seen, singletonList(5));
+            }
+        }
+        finally {
+            watcher.close();
+            Files.delete(file);
+            Files.delete(dir);
+        }
+    }
+
+    @Test(timeOut = 30_000)
+    public void testRefreshCoalescesBurst() throws Exception {
+        // Counted down by the first poll seeing the change, the burst then
+        // falls into the quiet period.
+        final CountDownLatch seen = new CountDownLatch(1);
+        final CountDownLatch notified = new CountDownLatch(1);
+        final AtomicInteger updates = new AtomicInteger();
+        final KonfigurationManager burstMan = fac.kombine(fac.map("map-burst", () -> {
+            if (!flag.get())
+                seen.countDown();
+            return sup.get();
+        }));
+        final Konfiguration burst = burstMan.getAndSetToNull();
+        burst.registerSoft(key -> {
+            updates.incrementAndGet();
+            notified.countDown();
+        }, "xxx");
+        assertEquals(burst.int_("xxx").v(), (Integer) 12);
+
+        final KonfigurationWatcher refresher = fac.refresh(burstMan, 10, 0.5, 2_000, 1_000);
+        try {
+            flag.set(false);
+            assertTrue(seen.await(10, TimeUnit.SECONDS));
+            flag.set(true);
+            flag.set(false);
+            assertTrue(notified.await(10, TimeUnit.SECONDS));
+        }
+        finally {
+            refresher.close();
+        }
+        assertEquals(burst.int_("xxx").v(), (Integer) 99);
+        assertEquals(updates.get(), 1);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testRefreshSurvivesFailingObserver() throws Exception {
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch second = new CountDownLatch(2);
+        k.registerSoft(key -> {
+            throw new IllegalStateException("observer failing on purpose");
+        }, "xxx");
+        k.registerSoft(key -> {
+            first.countDown();
+            second.countDown();
+        }, "xxx");
+        assertEquals(k.int_("xxx").v(), (Integer) 12);
+
+        final KonfigurationWatcher refresher = fac.refresh(man, 10, 0, 0, 1_000);
+        try {
+            flag.set(false);
+            assertTrue(first.await(10, TimeUnit.SECONDS));
+            // Still polling.
+            flag.set(true);
+            assertTrue(second.await(10, TimeUnit.SECONDS));
+        }
+        finally {
+            refresher.close();
+        }
+        assertEquals(k.int_("xxx").v(), (Integer) 12);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testRefreshBackoffEndsOnHealthyPoll() throws Exception {
+        final AtomicInteger failing = new AtomicInteger();
+        final CountDownLatch healthy = new CountDownLatch(20);
+        final KonfigurationManager flaky = fac.kombine(fac.map("map-flaky", () -> {
+            if (failing.getAndDecrement() > 0)
+                throw new IllegalStateException("poll failing on purpose");
+            healthy.countDown();
+            return sup.get();
+        }));
+        flaky.getAndSetToNull();
+
+        // Backed off up to 640ms, which would stay so were it not reset.
+        failing.set(6);
+        final KonfigurationWatcher refresher = fac.refresh(flaky, 10, 0, 0, 10_000);
+        try {
+            assertTrue(healthy.await(5, TimeUnit.SECONDS));
+        }
+        finally {
+            refresher.close();
+        }
+    }
+
+    @Test
+    public void testSameKeyReusesQ() {
+        assertSame(Q.int_("xxx"), Q.int_("xxx"));
+        assertEquals(Q.listOf("xxx", Integer.class), Q.listOf("xxx", Integer.class));
+        assertNotEquals(Q.int_("xxx"), Q.long_("xxx"));
+    }
+
     @Test
     public void testDefaultValue() {
         assertEquals(k.long_("some.bla.bla.bla").v(9876L), (Long) 9876L);
@@ -4,14 +4,29 @@ package io.koosha.konfiguration.v8;
 import io.koosha.konfiguration.DummyCustom;
 import io.koosha.konfiguration.KonfigValueTestMixin;
 import io.koosha.konfiguration.Source;
+import io.koosha.konfiguration.base.Fingerprinter;
 import io.koosha.konfiguration.base.UpdatableSource;
 import io.koosha.konfiguration.error.KfgTypeException;
+import io.koosha.konfiguration.type.Q;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 
@@ -51,6 +66,152 @@ public class JacksonJsonTest extends KonfigValueTestMixin {
         assertTrue(this.k.hasUpdate());
     }
 
+    @Test
+    public void testNestedKeyByPath() throws Exception {
+        assertEquals(this.k.int_("some.nested.key").v(), (Integer) 99);
+        assertFalse(this.k.has(Q.int_("key")));
+        assertFalse(this.k.has(Q.int_("nested.key")));
+    }
+
+    @Test
+    public void testCollectionDeserializedOnce() throws Exception {
+        final List<Integer> first = this.k.list("aIntList", Integer.class).v();
+        assertSame(this.k.list("aIntList", Integer.class).v(), first);
+        assertSame(this.k.map("aMap", String.class, Integer.class).v(),
+                this.k.map("aMap", String.class, Integer.class).v());
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testCollectionIsImmutable() throws Exception {
+        this.k.list("aIntList", Integer.class).v().add(4);
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        final UpdatableSource stream = ExtJacksonJsonSource.stream(
+                "stream",
+                () -> new ByteArrayInputStream(this.json.get().getBytes(StandardCharsets.UTF_8)),
+                ExtJacksonJsonSource::defaultJacksonObjectMapper);
+
+        assertEquals(stream.int_("aInt").v(), (Integer) 12);
+        assertEquals(stream.int_("some.nested.key").v(), (Integer) 99);
+        assertEquals(stream.map("aMap", String.class, Integer.class).v().get("c"), (Integer) 22);
+        assertEquals(stream.custom("some.nested.userDefined", DummyCustom.class).v().str, "I'm all set");
+        assertFalse(stream.hasUpdate());
+
+        this.json.set(DummyCustom.JSON_SAMPLE_1);
+        assertTrue(stream.hasUpdate());
+        assertEquals(stream.updatedSelf().int_("aInt").v(), (Integer) 99);
+    }
+
+    @Test
+    public void testFile() throws Exception {
+        final Path file = Files.createTempFile("konfig", ".json");
+        try {
+            Files.write(file, this.json.get().getBytes(StandardCharsets.UTF_8));
+            final UpdatableSource source = ExtJacksonJsonSource.file(
+                    "file", file, ExtJacksonJsonSource::defaultJacksonObjectMapper);
+            assertEquals(source.int_("some.nested.key").v(), (Integer) 99);
+            assertFalse(source.hasUpdate());
+            assertSame(source.updatedSelf(), source);
+
+            Files.write(file, DummyCustom.JSON_SAMPLE_1.getBytes(StandardCharsets.UTF_8));
+            assertTrue(source.hasUpdate());
+            assertEquals(source.updatedSelf().int_("aInt").v(), (Integer) 99);
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testVersionFingerprintSkipsFetch() {
+        final AtomicInteger fetches = new AtomicInteger();
+        final AtomicInteger version = new AtomicInteger();
+        final UpdatableSource source = new ExtJacksonJsonSource(
+                "versioned",
+                () -> {
+                    fetches.incrementAndGet();
+                    return this.json.get();
+                },
+                ExtJacksonJsonSource::defaultJacksonObjectMapper,
+                Fingerprinter.version(version::get));
+
+        fetches.set(0);
+        assertFalse(source.hasUpdate());
+        assertSame(source.updatedSelf(), source);
+        assertEquals(fetches.get(), 0);
+
+        this.json.set(DummyCustom.JSON_SAMPLE_1);
+        version.incrementAndGet();
+        assertTrue(source.hasUpdate());
+        assertEquals(source.updatedSelf().int_("aInt").v(), (Integer) 99);
+    }
+
+    @Test
+    public void testNullVersionIsStable() {
+        final Fingerprinter<Object> fingerprinter = Fingerprinter.version(() -> null);
+        assertEquals(fingerprinter.peek(), fingerprinter.peek());
+        assertEquals(fingerprinter.of("payload"), fingerprinter.peek());
+    }
+
+    @Test
+    public void testDigestFingerprint() {
+        final Fingerprinter<String> fingerprinter = Fingerprinter.digest();
+        assertEquals(fingerprinter.peek(), null);
+        assertEquals(fingerprinter.of(DummyCustom.JSON_SAMPLE_0),
+                fingerprinter.of(new String(DummyCustom.JSON_SAMPLE_0.toCharArray())));
+        assertNotEquals(fingerprinter.of(DummyCustom.JSON_SAMPLE_0),
+                fingerprinter.of(DummyCustom.JSON_SAMPLE_1));
+        // Same length, told apart by digest.
+        assertNotEquals(fingerprinter.of(DummyCustom.JSON_SAMPLE_0),
+                fingerprinter.of(DummyCustom.JSON_SAMPLE_0.replace("12", "13")));
+    }
+
+    @Test
+    public void testFileFingerprint() throws Exception {
+        final Path file = Files.createTempFile("konfig", ".json");
+        try {
+            Files.write(file, DummyCustom.JSON_SAMPLE_0.getBytes(StandardCharsets.UTF_8));
+            final Fingerprinter<Object> fingerprinter = Fingerprinter.file(file);
+            final Object first = fingerprinter.peek();
+            assertEquals(fingerprinter.peek(), first);
+
+            // Size differs, no matter the modification time resolution.
+            Files.write(file, (DummyCustom.JSON_SAMPLE_0 + " ").getBytes(StandardCharsets.UTF_8));
+            assertNotEquals(fingerprinter.peek(), first);
+        }
+        finally {
+            Files.delete(file);
+        }
+
+        // Missing: can not be told, taken as changed every time.
+        final Fingerprinter<Object> missing = Fingerprinter.file(file);
+        assertEquals(missing.peek(), null);
+        assertNotEquals(missing.of(""), missing.of(""));
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        final ExecutorService e = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                results.add(e.submit(() -> {
+                    for (int j = 0; j < 200; j++)
+                        if (this.k.int_("aInt").v() != 12
+                                || this.k.list("aIntList", Integer.class).v().size() != 3)
+                            return false;
+                    return true;
+                }));
+            for (final Future<Boolean> result : results)
+                assertTrue(result.get());
+        }
+        finally {
+            e.shutdown();
+        }
+    }
+
     @SuppressWarnings("ResultOfMethodCallIgnored")
     @Test(expectedExceptions = KfgTypeException.class)
     public void testBadSet() throws Exception {
@@ -3,13 +3,22 @@ package io.koosha.konfiguration.v8;
 import io.koosha.konfiguration.DummyCustom;
 import io.koosha.konfiguration.KonfigValueTestMixin;
 import io.koosha.konfiguration.Source;
+import io.koosha.konfiguration.base.DiffableSource;
 import io.koosha.konfiguration.base.UpdatableSource;
+import io.koosha.konfiguration.base.VersionedMap;
+import org.jetbrains.annotations.NotNull;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -47,4 +56,77 @@ public class MapKonfigSourceTest extends KonfigValueTestMixin {
         assertTrue(this.k.hasUpdate());
     }
 
+    @Test
+    public void testNestedKeyByPath() throws Exception {
+        final Map<String, Object> c = new HashMap<>();
+        c.put("c", 3);
+        c.put("d.e", 4);
+        final Map<String, Object> b = new HashMap<>();
+        b.put("b", c);
+        final Map<String, Object> root = new HashMap<>();
+        root.put("a", b);
+        root.put("a.b.c", 5);
+
+        final Source source = new ExtMapSource("nested", () -> root, true);
+        assertEquals(source.int_("a.b.c").v(), (Integer) 5);
+        assertEquals(source.int_("a.b.d.e").v(), (Integer) 4);
+        assertTrue(source.has("a.b", Map.class));
+        assertFalse(source.has("a.b.nope", Integer.class));
+        assertTrue(((DiffableSource) source).keys().contains("a.b.d.e"));
+    }
+
+    @Test
+    public void testVersionedMapAppliesChangedKeys() throws Exception {
+        // Only read whole once, when the source is first built.
+        final AtomicBoolean walked = new AtomicBoolean(false);
+        final Map<String, Object> backing = new HashMap<String, Object>() {
+            @NotNull
+            @Override
+            public Set<Entry<String, Object>> entrySet() {
+                assertFalse(walked.getAndSet(true), "map walked on update");
+                return super.entrySet();
+            }
+        };
+        backing.put("a", 1);
+        backing.put("b", 2);
+        final AtomicLong version = new AtomicLong();
+        final Set<String> changed = new HashSet<>();
+        final VersionedMap versioned = new VersionedMap() {
+            @Override
+            public long version() {
+                return version.get();
+            }
+
+            @NotNull
+            @Override
+            public Map<String, ?> map() {
+                return backing;
+            }
+
+            @Override
+            public Set<String> changedSince(final long v) {
+                return changed;
+            }
+        };
+
+        final UpdatableSource source = ExtMapSource.versioned("versioned", versioned, false);
+        assertFalse(source.hasUpdate());
+
+        backing.put("a", 10);
+        // Not told as changed, must not be picked up.
+        backing.put("b", 20);
+        backing.put("c", 30);
+        changed.add("a");
+        changed.add("c");
+        version.incrementAndGet();
+        assertTrue(source.hasUpdate());
+
+        final UpdatableSource updated = source.updatedSelf();
+        assertFalse(updated.hasUpdate());
+        assertEquals(updated.int_("a").v(), (Integer) 10);
+        assertEquals(updated.int_("b").v(), (Integer) 2);
+        assertEquals(updated.int_("c").v(), (Integer) 30);
+        assertEquals(((DiffableSource) updated).diff(source), changed);
+    }
+
 }
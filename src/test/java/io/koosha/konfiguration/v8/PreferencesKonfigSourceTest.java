@@ -0,0 +1,248 @@
+package io.koosha.konfiguration.v8;
+
+import io.koosha.konfiguration.Source;
+import io.koosha.konfiguration.base.Deserializer;
+import io.koosha.konfiguration.base.UpdatableSource;
+import io.koosha.konfiguration.type.Q;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.prefs.Preferences;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@SuppressWarnings({"RedundantThrows", "WeakerAccess"})
+public class PreferencesKonfigSourceTest {
+
+    Preferences node;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        this.node = Preferences.userRoot().node("konfiguration-test-" + System.nanoTime());
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        this.node.removeNode();
+    }
+
+    /**
+     * A key is visible to the source if the root has it and a node by its
+     * path exists.
+     */
+    void put(final String key,
+             final String value) {
+        final String path = key.replace('.', '/');
+        this.node.node(path);
+        this.node.put(path, value);
+    }
+
+    /**
+     * Preference events are delivered asynchronously.
+     */
+    static void await(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        this.put("aInt", "12");
+        this.put("aLong", Long.toString(Long.MAX_VALUE));
+        this.put("aDouble", "3.14");
+        this.put("aBool", "TRUE");
+        this.put("aString", "hello world");
+        this.put("aChar", "c");
+        this.put("some.nested", "7");
+
+        for (final boolean snapshot : new boolean[]{false, true}) {
+            final Source source = new ExtPreferencesSource("prefs", this.node, null, snapshot);
+            assertEquals(source.int_("aInt").v(), (Integer) 12);
+            assertEquals(source.long_("aLong").v(), (Long) Long.MAX_VALUE);
+            assertEquals(source.double_("aDouble").v(), (Double) 3.14);
+            assertEquals(source.bool("aBool").v(), Boolean.TRUE);
+            assertEquals(source.string("aString").v(), "hello world");
+            assertEquals(source.char_("aChar").v(), (Character) 'c');
+            assertEquals(source.int_("some.nested").v(), (Integer) 7);
+
+            assertFalse(source.has(Q.int_("aString")));
+            assertFalse(source.has(Q.int_("aLong")));
+            assertFalse(source.has(Q.bool("aInt")));
+            assertFalse(source.has(Q.char_("aString")));
+        }
+    }
+
+    @Test
+    public void testMissingKey() throws Exception {
+        // Value without its node, and node without its value.
+        this.node.put("noNode", "1");
+        this.node.node("noValue");
+
+        for (final boolean snapshot : new boolean[]{false, true}) {
+            final Source source = new ExtPreferencesSource("prefs", this.node, null, snapshot);
+            assertFalse(source.has(Q.int_("missing")));
+            assertFalse(source.has(Q.string("missing")));
+            assertFalse(source.has(Q.int_("noNode")));
+            assertFalse(source.has(Q.string("noValue")));
+        }
+    }
+
+    @Test
+    public void testByteShortRange() throws Exception {
+        this.put("aByte", "127");
+        this.put("aShort", "300");
+        this.put("anInt", "70000");
+
+        for (final boolean snapshot : new boolean[]{false, true}) {
+            final Source source = new ExtPreferencesSource("prefs", this.node, null, snapshot);
+            assertTrue(source.has(Q.byte_("aByte")));
+            assertFalse(source.has(Q.byte_("aShort")));
+            assertTrue(source.has(Q.short_("aShort")));
+            assertFalse(source.has(Q.short_("anInt")));
+            assertTrue(source.has(Q.int_("anInt")));
+        }
+    }
+
+    @Test(timeOut = 30_000)
+    public void testSnapshotReadOnUpdate() throws Exception {
+        this.put("aInt", "12");
+        final ExtPreferencesSource snapshot = new ExtPreferencesSource("prefs", this.node, null, true);
+
+        this.put("aInt", "99");
+        this.put("added", "1");
+        await(snapshot::hasUpdate);
+        assertEquals(snapshot.int_("aInt").v(), (Integer) 12);
+        assertFalse(snapshot.has(Q.int_("added")));
+
+        final UpdatableSource updated = snapshot.updatedSelf();
+        assertEquals(updated.int_("aInt").v(), (Integer) 99);
+        assertTrue(updated.has(Q.int_("added")));
+    }
+
+    @Test(timeOut = 30_000)
+    public void testCustomDecodedOnce() throws Exception {
+        final Q<StringBuilder> q = Q.of("blob", StringBuilder.class);
+        final AtomicInteger decodes = new AtomicInteger();
+        // Only the array variant, the buffer one copies into it.
+        final Deserializer deser = new Deserializer() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T apply(@NotNull final byte[] bytes,
+                               @NotNull final Q<@NotNull T> q) {
+                decodes.incrementAndGet();
+                return (T) new StringBuilder(new String(bytes, StandardCharsets.UTF_8));
+            }
+        };
+        this.node.node("blob");
+        this.node.putByteArray("blob", "hello".getBytes(StandardCharsets.UTF_8));
+
+        for (final boolean snapshot : new boolean[]{false, true}) {
+            decodes.set(0);
+            final ExtPreferencesSource source = new ExtPreferencesSource("prefs", this.node, deser, snapshot);
+            assertTrue(source.has(q));
+            final StringBuilder first = source.custom(q).v();
+            assertEquals(first.toString(), "hello");
+            assertSame(source.custom(q).v(), first);
+            assertEquals(decodes.get(), 1);
+
+            this.node.putByteArray("blob", "bye".getBytes(StandardCharsets.UTF_8));
+            await(source::hasUpdate);
+            final UpdatableSource updated = source.updatedSelf();
+            assertEquals(updated.custom(q).v().toString(), "bye");
+            assertSame(updated.custom(q).v(), updated.custom(q).v());
+            assertEquals(decodes.get(), 2);
+
+            this.node.putByteArray("blob", "hello".getBytes(StandardCharsets.UTF_8));
+            await(updated::hasUpdate);
+        }
+    }
+
+    @Test
+    public void testBufferDeserializerDefault() throws Exception {
+        final Deserializer deser = new Deserializer() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T apply(@NotNull final byte[] bytes,
+                               @NotNull final Q<@NotNull T> q) {
+                return (T) new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+        final ByteBuffer buffer = ByteBuffer.wrap("xxhelloxx".getBytes(StandardCharsets.UTF_8));
+        buffer.position(2).limit(7);
+        assertEquals(deser.apply(buffer.asReadOnlyBuffer(), Q.of("k", String.class)), "hello");
+        // Not consumed.
+        assertEquals(buffer.position(), 2);
+    }
+
+    @Test(timeOut = 30_000)
+    public void testChangeBumpsVersion() throws Exception {
+        this.put("aInt", "12");
+        final ExtPreferencesSource source = new ExtPreferencesSource("prefs", this.node, null);
+        assertFalse(source.hasUpdate());
+        assertSame(source.updatedSelf(), source);
+
+        this.node.put("aInt", "99");
+        await(source::hasUpdate);
+
+        final UpdatableSource updated = source.updatedSelf();
+        assertFalse(updated.hasUpdate());
+        assertEquals(updated.int_("aInt").v(), (Integer) 99);
+        assertTrue(((ExtPreferencesSource) updated).diff(source).contains("aInt"));
+    }
+
+    @Test
+    public void testTrackerSharedPerNode() throws Exception {
+        assertSame(ExtPreferencesSource.Tracker.of("a", this.node),
+                ExtPreferencesSource.Tracker.of("b", this.node));
+    }
+
+    @Test(timeOut = 30_000)
+    public void testAddedChildListened() throws Exception {
+        final ExtPreferencesSource source = new ExtPreferencesSource("prefs", this.node, null);
+        final Preferences child = this.node.node("child");
+        await(source::hasUpdate);
+
+        final ExtPreferencesSource added = (ExtPreferencesSource) source.updatedSelf();
+        child.put("key", "value");
+        await(added::hasUpdate);
+
+        final Set<String> diff = ((ExtPreferencesSource) added.updatedSelf()).diff(added);
+        assertNotNull(diff);
+        assertTrue(diff.contains("child.key"));
+    }
+
+    @Test(timeOut = 60_000)
+    public void testChangesForgottenPastLimit() throws Exception {
+        final ExtPreferencesSource source = new ExtPreferencesSource("prefs", this.node, null);
+        for (int i = 0; i <= ExtPreferencesSource.Tracker.MAX_CHANGES; i++)
+            this.node.put("key", Integer.toString(i));
+
+        // Reaching back past the limit can not be told.
+        await(() -> ((ExtPreferencesSource) source.updatedSelf()).diff(source) == null);
+
+        final ExtPreferencesSource recent = (ExtPreferencesSource) source.updatedSelf();
+        this.node.put("last", "x");
+        await(() -> {
+            final Set<String> diff = ((ExtPreferencesSource) recent.updatedSelf()).diff(recent);
+            return diff != null && diff.contains("last");
+        });
+        assertNull(((ExtPreferencesSource) recent.updatedSelf()).diff(source));
+    }
+
+}
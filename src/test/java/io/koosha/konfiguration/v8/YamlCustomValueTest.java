@@ -39,6 +39,20 @@ public class YamlCustomValueTest {
         assertEquals(bang.str, "hello");
     }
 
+    @Test
+    public void testCustomValueSameShape() {
+        final String n = getClass().getSimpleName();
+        final ExtYamlSource source = new ExtYamlSource(n,
+                () -> "bang:\n  str : hello\n  i: 99\nbong:\n  str : bye\n  i: 12",
+                ExtYamlSource::getDefaultYamlSupplier, FaktoryV8.SAFE_YAML.get());
+        final DummyCustom bang = source.custom("bang", DummyCustom.class).v();
+        final DummyCustom bong = source.custom("bong", DummyCustom.class).v();
+        assertEquals(bang.i, 99);
+        assertEquals(bang.str, "hello");
+        assertEquals(bong.i, 12);
+        assertEquals(bong.str, "bye");
+    }
+
     @Test
     public void testCustomValue2() throws URISyntaxException, IOException {
         final String n = getClass().getSimpleName();
@@ -1,19 +1,28 @@
 package io.koosha.konfiguration.v8;
 
+import io.koosha.konfiguration.DummyCustom;
 import io.koosha.konfiguration.Faktory;
 import io.koosha.konfiguration.KonfigValueTestMixin;
 import io.koosha.konfiguration.Source;
 import io.koosha.konfiguration.base.UpdatableSource;
+import io.koosha.konfiguration.type.Q;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import org.yaml.snakeyaml.Yaml;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static io.koosha.konfiguration.DummyCustom.YAML_SAMPLE_0;
 import static io.koosha.konfiguration.DummyCustom.YAML_SAMPLE_1;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 @SuppressWarnings("RedundantThrows")
@@ -63,4 +72,56 @@ public class YamlKonfigSourceTest extends KonfigValueTestMixin {
         assertTrue(this.k.hasUpdate());
     }
 
+    @Test
+    public void testNestedKeyByPath() throws Exception {
+        assertEquals(this.k.int_("some.nested.key").v(), (Integer) 99);
+        assertTrue(this.k.has(Q.int_("some.nested.key")));
+        assertFalse(this.k.has(Q.int_("some.nested.nope")));
+        assertFalse(this.k.has(Q.int_("nope.nested.key")));
+        assertTrue(((ExtYamlSource) this.k).keys().contains("some.nested.userDefined.str"));
+    }
+
+    @Test
+    public void testLazy() throws Exception {
+        final UpdatableSource lazy = ExtYamlSource.lazy(
+                "lazy", yaml::get, ExtYamlSource::getDefaultYamlSupplier, false);
+        assertEquals(lazy.int_("some.nested.key").v(), (Integer) 99);
+        assertEquals(lazy.string("aString").v(), "hello world");
+        assertEquals(lazy.list("aIntList", Integer.class).v(), asList(1, 0, 2));
+        assertEquals(lazy.custom("some.nested.userDefined", DummyCustom.class).v().str, "I'm all set");
+        assertFalse(lazy.has(Q.int_("some.nested.nope")));
+
+        final UpdatableSource merged = ExtYamlSource.lazy("merged",
+                () -> "base: &base\n  a: 1\n  b: 2\nderived:\n  <<: *base\n  b: 3\n",
+                ExtYamlSource::getDefaultYamlSupplier, false);
+        assertEquals(merged.int_("derived.a").v(), (Integer) 1);
+        assertEquals(merged.int_("derived.b").v(), (Integer) 3);
+        // A yaml provider of its own takes the round trip through yaml text.
+        final UpdatableSource reloaded = ExtYamlSource.lazy(
+                "reloaded", yaml::get, Yaml::new, false);
+        assertEquals(reloaded.int_("some.nested.key").v(), (Integer) 99);
+        assertEquals(reloaded.map("some.nested", String.class, Object.class).v(),
+                lazy.map("some.nested", String.class, Object.class).v());
+    }
+
+    @Test
+    public void testFile() throws Exception {
+        final Path file = Files.createTempFile("konfig", ".yaml");
+        try {
+            Files.write(file, YAML_SAMPLE_0.getBytes(StandardCharsets.UTF_8));
+            final UpdatableSource source = ExtYamlSource.file(
+                    "file", file, ExtYamlSource::getDefaultYamlSupplier, false);
+            assertEquals(source.int_("aInt").v(), (Integer) 12);
+            assertFalse(source.hasUpdate());
+            assertSame(source.updatedSelf(), source);
+
+            Files.write(file, YAML_SAMPLE_1.getBytes(StandardCharsets.UTF_8));
+            assertTrue(source.hasUpdate());
+            assertEquals(source.updatedSelf().int_("aInt").v(), (Integer) 99);
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
 }